@@ -0,0 +1,20 @@
+package minesweeper.bench;
+
+import java.util.SplittableRandom;
+
+import minesweeper.Board;
+import minesweeper.MineGenerator;
+
+/* Shared fixtures of the benchmarks */
+final class Bench {
+
+    private Bench()
+    {
+    }
+
+    /* A fixed size x size board for the given density, the same on every run */
+    static Board board(int size, double density)
+    {
+        return MineGenerator.withDensity(size, size, density, new SplittableRandom(size * 31L + (long) (density * 1000)), -1, -1);
+    }
+}
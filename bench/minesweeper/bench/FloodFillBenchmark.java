@@ -0,0 +1,50 @@
+package minesweeper.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import minesweeper.Board;
+import minesweeper.Minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/******************************************************************************
+ *  createGameMap: close the whole board, then flood fill every blank
+ *  region through openSquare.
+ *
+ ******************************************************************************/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FloodFillBenchmark {
+
+    @Param({"12", "100", "500", "2000"})
+    public int size;
+
+    @Param({"0.05", "0.1", "0.25"})
+    public double density;
+
+    private Board mineMap;
+    private Minesweeper game;
+
+    @Setup
+    public void setup()
+    {
+        mineMap = Bench.board(size, density);
+        game = new Minesweeper(mineMap, new SplittableRandom(42));
+    }
+
+    @Benchmark
+    public Board createGameMap()
+    {
+        return game.createGameMap(mineMap);
+    }
+}
@@ -0,0 +1,57 @@
+package minesweeper.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import minesweeper.Board;
+import minesweeper.MineGenerator;
+import minesweeper.Minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/******************************************************************************
+ *  Mine map generation: the flat generator and the legacy int[][] path of
+ *  generateMineMap on top of it.
+ *
+ ******************************************************************************/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GenerateBenchmark {
+
+    @Param({"12", "100", "500", "2000"})
+    public int size;
+
+    @Param({"0.1", "0.25"})
+    public double density;
+
+    private SplittableRandom rand;
+    private Minesweeper game;
+
+    @Setup
+    public void setup()
+    {
+        rand = new SplittableRandom(42);
+        game = new Minesweeper(Bench.board(12, 0.1), rand);
+    }
+
+    @Benchmark
+    public Board generateBoard()
+    {
+        return MineGenerator.withDensity(size, size, density, rand, -1, -1);
+    }
+
+    @Benchmark
+    public int[][] generateMineMap()
+    {
+        return game.generateMineMap(size, size, density);
+    }
+}
@@ -0,0 +1,87 @@
+package minesweeper.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import minesweeper.Board;
+import minesweeper.MineMapFile;
+import minesweeper.Minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/******************************************************************************
+ *  Saving and loading a mine map, text (saveMineMap/loadMineMap) against
+ *  the binary MineMapFile format.
+ *
+ ******************************************************************************/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IoBenchmark {
+
+    @Param({"12", "100", "500", "2000"})
+    public int size;
+
+    @Param({"0.25"})
+    public double density;
+
+    private Board mineMap;
+    private int[][] mineArray;
+    private Minesweeper game;
+    private File text;
+    private File binary;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        mineMap = Bench.board(size, density);
+        mineArray = mineMap.toArray();
+        game = new Minesweeper(mineMap, new SplittableRandom(42));
+        text = File.createTempFile("minemap", ".txt");
+        binary = File.createTempFile("minemap", ".msmp");
+        game.saveMineMap(mineArray, text.getPath());
+        MineMapFile.save(mineMap, binary.getPath());
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        text.delete();
+        binary.delete();
+    }
+
+    @Benchmark
+    public void saveText()
+    {
+        game.saveMineMap(mineArray, text.getPath());
+    }
+
+    @Benchmark
+    public int[][] loadText()
+    {
+        return game.loadMineMap(text.getPath());
+    }
+
+    @Benchmark
+    public void saveBinary() throws IOException
+    {
+        MineMapFile.save(mineMap, binary.getPath());
+    }
+
+    @Benchmark
+    public Board loadBinary() throws IOException
+    {
+        return MineMapFile.load(binary.getPath());
+    }
+}
@@ -0,0 +1,62 @@
+package minesweeper.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import minesweeper.BatchRunner;
+import minesweeper.Minesweeper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/******************************************************************************
+ *  Whole games back to back, a new Minesweeper per game against one
+ *  instance reset for every game. Both play the same sequence of games.
+ *  Compare gc.alloc.rate.norm of the GC profiler (on in ant bench): the
+ *  reused game should only allocate its SplittableRandom and whatever the
+ *  frontier stage needs on a stall.
+ *
+ ******************************************************************************/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResetBenchmark {
+
+    @Param({"12", "100"})
+    public int size;
+
+    @Param({"0.15", "0.25"})
+    public double density;
+
+    private Minesweeper game;
+    private int k;
+
+    @Setup
+    public void setup()
+    {
+        game = new Minesweeper(size, size, density);
+        game.setNoDebugMsg(true);
+    }
+
+    @Benchmark
+    public boolean fresh()
+    {
+        Minesweeper fresh = new Minesweeper(size, size, density, new SplittableRandom(BatchRunner.gameSeed(1, k++)), true);
+        fresh.setNoDebugMsg(true);
+        return fresh.solution(k);
+    }
+
+    @Benchmark
+    public boolean reused()
+    {
+        game.reset(BatchRunner.gameSeed(1, k++));
+        return game.solution(k);
+    }
+}
@@ -0,0 +1,59 @@
+package minesweeper.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import minesweeper.CellSet;
+import minesweeper.Game;
+import minesweeper.MineGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/******************************************************************************
+ *  What-if opens: snapshot, open a random close square, roll back. The
+ *  cost should follow the squares the open changed, not the board, so the
+ *  score should barely move from 12x12 to 1000x1000.
+ *
+ ******************************************************************************/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SnapshotBenchmark {
+
+    @Param({"12", "100", "1000"})
+    public int size;
+
+    @Param({"0.15"})
+    public double density;
+
+    private Game game;
+    private CellSet closed;
+    private SplittableRandom rand;
+
+    @Setup
+    public void setup()
+    {
+        game = new Game(MineGenerator.withDensity(size, size, density, new SplittableRandom(1), 2, 2),
+                new SplittableRandom(1));
+        game.open(2, 2);
+        closed = game.getCloseSquares();
+        rand = new SplittableRandom(2);
+    }
+
+    @Benchmark
+    public boolean whatIf()
+    {
+        int mark = game.snapshot();
+        boolean safe = game.openDeduced(closed.get(rand.nextInt(closed.size())));
+        game.rollback(mark);
+        return safe;
+    }
+}
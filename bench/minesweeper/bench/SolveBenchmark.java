@@ -0,0 +1,68 @@
+package minesweeper.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import minesweeper.Board;
+import minesweeper.Minesweeper;
+import minesweeper.Solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/******************************************************************************
+ *  getUnsolvedMine + one solver backend on a fresh game per invocation,
+ *  always the same board and the same first click so the backends are
+ *  compared on identical positions.
+ *
+ ******************************************************************************/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SolveBenchmark {
+
+    @Param({"12", "100", "500", "2000"})
+    public int size;
+
+    @Param({"0.1", "0.15", "0.25"})
+    public double density;
+
+    @Param({"heuristic", "linear"})
+    public String solver;
+
+    private Board mineMap;
+    private Minesweeper game;
+    private Solver backend;
+
+    @Setup(Level.Trial)
+    public void board()
+    {
+        mineMap = Bench.board(size, density);
+        backend = Solver.named(solver);
+    }
+
+    @Setup(Level.Invocation)
+    public void game()
+    {
+        game = new Minesweeper(mineMap, new SplittableRandom(7));
+        game.setNoDebugMsg(true);
+        game.setSolver(backend);
+        game.openRandomSquare();
+    }
+
+    @Benchmark
+    public int solve()
+    {
+        game.getUnsolvedMine();
+        backend.solve(game);
+        return game.getGuessCount();
+    }
+}
@@ -0,0 +1,67 @@
+package minesweeper;
+
+/******************************************************************************
+ *  What an anytime solve (Game.solveWithin) got done before it finished or
+ *  ran out of budget.
+ *
+ *  The moves it found are already played on the game, opened and flagged
+ *  squares can be read there or followed with a SolverListener. When the
+ *  budget ran out right after the frontier enumeration, guess() is the
+ *  square it was about to open.
+ *
+ ******************************************************************************/
+
+public final class AnytimeResult {
+
+    private final Game.State state;
+    private final boolean complete;
+    private final double resolved;
+    private final int guess;
+    private final long ops;
+    private final long nanos;
+
+    AnytimeResult(Game.State state, boolean complete, double resolved, int guess, long ops, long nanos)
+    {
+        this.state = state;
+        this.complete = complete;
+        this.resolved = resolved;
+        this.guess = guess;
+        this.ops = ops;
+        this.nanos = nanos;
+    }
+
+    /* State of the game when the solve stopped, PLAYING if the budget ran out */
+    public Game.State state()
+    {
+        return state;
+    }
+
+    /* False if the solve stopped at the budget rather than at the end of the game */
+    public boolean complete()
+    {
+        return complete;
+    }
+
+    /* Share of the squares of the board that are open or flagged, 0 to 1 */
+    public double resolved()
+    {
+        return resolved;
+    }
+
+    /* Flat index of the safest close square the solve knew of when it stopped, -1 if none */
+    public int guess()
+    {
+        return guess;
+    }
+
+    /* Operations the solve took, see SolveBudget */
+    public long ops()
+    {
+        return ops;
+    }
+
+    public long nanos()
+    {
+        return nanos;
+    }
+}
@@ -0,0 +1,314 @@
+package minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/******************************************************************************
+ *  Plays a batch of independent games on a fixed pool of worker threads and
+ *  adds up the outcome.
+ *
+ *  Every game gets its own SplittableRandom seeded from (seed, game number),
+ *  so the board, the first click and every guess of game k are the same no
+ *  matter which worker plays it. The totals are plain sums, therefore a fixed seed
+ *  gives the same report for any number of threads.
+ *
+ *  Each worker plays its whole range on one Minesweeper instance, reset for
+ *  every game, so the boards and solver buffers are allocated once per worker.
+ *  The pool is started by the first run and kept for every later one, close
+ *  shuts it down.
+ *
+ ******************************************************************************/
+
+public class BatchRunner implements Closeable {
+
+    private final int m;
+    private final int n;
+    private final double p;
+    private final int threads;
+    private MineMapCorpus.Writer failCorpus;
+    private Metrics metrics;
+    private Solver solver = Solver.HEURISTIC;
+    private int patternBits;
+    private ExecutorService pool;
+
+    /**
+     * @param m row
+     * @param n columns
+     * @param p probability of mine
+     * @param threads number of worker threads
+     */
+    public BatchRunner(int m, int n, double p, int threads)
+    {
+        this.m = m;
+        this.n = n;
+        this.p = p;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Play games [0, games) and return the combined report.
+     * @param games number of games
+     * @param seed base seed of the batch
+     * @return
+     */
+    public Report run(int games, long seed)
+    {
+        return run(0, games, seed);
+    }
+
+    /**
+     * Play games [from, to) of the batch, so a batch can be grown in steps: run(0, a) and
+     * run(a, b) add up to run(0, b).
+     * @param from first game
+     * @param to end of the range
+     * @param seed base seed of the batch
+     * @return
+     */
+    public Report run(int from, int to, long seed)
+    {
+        return runRanges(from, to, (start, end) -> playRange(start, end, seed));
+    }
+
+    /**
+     * Replay every board of a corpus, board k with the same per-game seed game k of run would get.
+     * @param corpus boards to play
+     * @param seed base seed of the batch
+     * @return
+     */
+    public Report replay(MineMapCorpus.Reader corpus, long seed)
+    {
+        return runRanges(0, corpus.size(), (from, to) -> {
+            Report report = new Report();
+            Minesweeper game = newGame();
+            corpus.forEach(from, to, (k, mineMap) -> replayGame(game, k, mineMap, seed, report));
+            return report;
+        });
+    }
+
+    /* Record the board of every lost game into corpus, the caller closes it */
+    public void setFailCorpus(MineMapCorpus.Writer corpus)
+    {
+        this.failCorpus = corpus;
+    }
+
+    /* Collect the counters and phase timers of every game into metrics */
+    public void setMetrics(Metrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /* Solve every game with solver, Solver.HEURISTIC unless set */
+    public void setSolver(Solver solver)
+    {
+        this.solver = solver;
+    }
+
+    /* Give every worker game a PatternCache of 2^bits slots, 0 (the default) for none */
+    public void setPatternCache(int bits)
+    {
+        this.patternBits = bits;
+    }
+
+    /* Stop the worker threads, a later run starts new ones */
+    @Override
+    public synchronized void close()
+    {
+        if (pool != null)
+        {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    /* The worker pool, started on first use; daemon threads, so a runner never closed does not keep the JVM up */
+    private synchronized ExecutorService pool()
+    {
+        if (pool == null)
+        {
+            pool = Executors.newFixedThreadPool(threads, task -> {
+                Thread worker = new Thread(task, "batch-runner");
+                worker.setDaemon(true);
+                return worker;
+            });
+        }
+        return pool;
+    }
+
+    /* Split [first, games) into one range per worker and add up the reports */
+    private Report runRanges(int first, int games, Range range)
+    {
+        ExecutorService pool = pool();
+        List<Future<Report>> parts = new ArrayList<Future<Report>>();
+        try
+        {
+            int chunk = Math.max(1, (games - first + threads - 1) / threads);
+            for (int from = first; from < games; from += chunk)
+            {
+                final int start = from;
+                final int end = Math.min(games, from + chunk);
+                parts.add(pool.submit(() -> range.play(start, end)));
+            }
+
+            Report total = new Report();
+            for (Future<Report> part : parts)
+            {
+                total.add(part.get());
+            }
+            return total;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("Game failed", e.getCause());
+        }
+        finally
+        {
+            // nothing of a failed or interrupted run keeps playing on the shared pool
+            for (Future<Report> part : parts)
+            {
+                part.cancel(true);
+            }
+        }
+    }
+
+    /* Play games [from, to) on the calling thread, one reused game instance for the whole range */
+    public Report playRange(int from, int to, long seed)
+    {
+        Report report = new Report();
+        Minesweeper game = newGame();
+        for (int k = from; k < to; k++)
+        {
+            playGame(game, k, seed, report);
+        }
+        return report;
+    }
+
+    /* Play game k of the batch, the mines are placed around the first click so it never loses */
+    public void playGame(int k, long seed, Report report)
+    {
+        playGame(newGame(), k, seed, report);
+    }
+
+    /* Play game k of the batch on a game made by newGame, reset for it */
+    public void playGame(Minesweeper game, int k, long seed, Report report)
+    {
+        game.reset(gameSeed(seed, k));
+        count(k, game, report);
+    }
+
+    /* Play board k of a corpus, a first click on a bomb is thrown away and clicked again */
+    public void replayGame(int k, Board mineMap, long seed, Report report)
+    {
+        replayGame(newGame(), k, mineMap, seed, report);
+    }
+
+    /* Play board k of a corpus on a game made by newGame, reset for every click */
+    public void replayGame(Minesweeper game, int k, Board mineMap, long seed, Report report)
+    {
+        SplittableRandom rand = new SplittableRandom(gameSeed(seed, k));
+        while (true)
+        {
+            game.reset(mineMap, rand);
+            if (!game.openRandomSquare())
+            {
+                report.redraws++;
+                continue;
+            }
+
+            count(k, game, report);
+            return;
+        }
+    }
+
+    /* An idle game of the batch size and settings, to be reset for every game it plays */
+    public Minesweeper newGame()
+    {
+        Minesweeper game = new Minesweeper(m, n, p);
+        game.setNoDebugMsg(true);
+        game.setSolver(solver);
+        game.setPatternCache(patternBits);
+        return game;
+    }
+
+    private void count(int k, Minesweeper game, Report report)
+    {
+        if (game.solution(k))
+        {
+            report.wins++;
+        }
+        else
+        {
+            report.losses++;
+            if (failCorpus != null)
+            {
+                try
+                {
+                    failCorpus.add(game.getMineMap());
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        report.games++;
+        report.guesses += game.getGuessCount();
+        if (metrics != null)
+        {
+            game.recordTo(metrics);
+        }
+    }
+
+    /* Seed of game k, mixed so neighbouring games do not get correlated streams */
+    public static long gameSeed(long seed, int k)
+    {
+        long z = seed + (k + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /* Plays games [from, to) on one worker */
+    private interface Range
+    {
+        Report play(int from, int to) throws Exception;
+    }
+
+    /* Combined outcome of a batch */
+    public static class Report
+    {
+        public long games;
+        public long wins;
+        public long losses;
+        public long guesses;
+        public long redraws;
+
+        public void add(Report other)
+        {
+            games += other.games;
+            wins += other.wins;
+            losses += other.losses;
+            guesses += other.guesses;
+            redraws += other.redraws;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "games: " + games + " win: " + wins + " lose: " + losses
+                    + " guesses: " + guesses + " redraw: " + redraws;
+        }
+    }
+}
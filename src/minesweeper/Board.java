@@ -0,0 +1,220 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/******************************************************************************
+ *  A rows-by-cols grid of cells kept as one flat byte[], one byte per cell.
+ *
+ *  The grid is surrounded by a one cell WALL guard ring, so every cell has
+ *  exactly 8 neighbours at the fixed flat offsets in neighbours() and the
+ *  3x3 scans of the solver need no bounds checks. Cell (x, y) lives at
+ *  index(x, y) = (x+1)*stride + (y+1).
+ *
+ *  The same class holds the mine layer (0-8 neighbour count, 9 mine) and
+ *  the game layer (-1 close, 0-8 opened, 9 flagged).
+ *
+ ******************************************************************************/
+
+public class Board {
+
+    public static final byte MINE = 9;
+    public static final byte CLOSE = -1;
+    public static final byte BLANK = 0;
+    public static final byte WALL = -2;
+
+    private final int rows;
+    private final int cols;
+    private final int stride;
+    private final byte[] cells;
+    private final int[] neighbours;
+
+    /**
+     * Create an empty board, every cell is BLANK
+     * @param rows
+     * @param cols
+     */
+    public Board(int rows, int cols)
+    {
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols + 2;
+        this.cells = new byte[(rows + 2) * stride];
+        this.neighbours = new int[] {
+            -stride - 1, -stride, -stride + 1,
+            -1,                   1,
+            stride - 1,  stride,  stride + 1
+        };
+
+        // guard ring, top and bottom rows then left and right columns
+        Arrays.fill(cells, 0, stride, WALL);
+        Arrays.fill(cells, (rows + 1) * stride, cells.length, WALL);
+        for (int i = 1; i <= rows; i++)
+        {
+            cells[i * stride] = WALL;
+            cells[i * stride + cols + 1] = WALL;
+        }
+    }
+
+    /* Copy a legacy int[][] map */
+    public static Board fromArray(int[][] map)
+    {
+        Board board = new Board(map.length, map[0].length);
+        for (int i = 0; i < board.rows; i++)
+        {
+            int base = board.index(i, 0);
+            for (int j = 0; j < board.cols; j++)
+            {
+                board.cells[base + j] = (byte) map[i][j];
+            }
+        }
+        return board;
+    }
+
+    /* Export to a legacy int[][] map */
+    public int[][] toArray()
+    {
+        int[][] map = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+        {
+            int base = index(i, 0);
+            for (int j = 0; j < cols; j++)
+            {
+                map[i][j] = cells[base + j];
+            }
+        }
+        return map;
+    }
+
+    /* New board of the same shape with every cell set to value, the guard ring stays WALL */
+    public Board newLayer(byte value)
+    {
+        Board layer = new Board(rows, cols);
+        layer.fill(value);
+        return layer;
+    }
+
+    /* Independent copy, guard ring included */
+    public Board copy()
+    {
+        Board copy = new Board(rows, cols);
+        System.arraycopy(cells, 0, copy.cells, 0, cells.length);
+        return copy;
+    }
+
+    /* Set every cell to value in place, the guard ring stays WALL */
+    public void fill(byte value)
+    {
+        for (int i = 0; i < rows; i++)
+        {
+            int base = index(i, 0);
+            Arrays.fill(cells, base, base + cols, value);
+        }
+    }
+
+    /* True if other has the same rows and cols, so the flat indexes mean the same cells */
+    public boolean sameShape(Board other)
+    {
+        return other != null && other.rows == rows && other.cols == cols;
+    }
+
+    /**
+     * Recompute the neighbour count of every square that is not a MINE. Each mine adds one to
+     * its 8 neighbours, instead of every square scanning its own 3x3.
+     */
+    public void countMines()
+    {
+        for (int i = 0; i < rows; i++)
+        {
+            int base = index(i, 0);
+            for (int j = 0; j < cols; j++)
+            {
+                if (cells[base + j] != MINE)
+                    cells[base + j] = BLANK;
+            }
+        }
+        for (int i = 0; i < rows; i++)
+        {
+            int base = index(i, 0);
+            for (int j = 0; j < cols; j++)
+            {
+                if (cells[base + j] != MINE)
+                    continue;
+                for (int d : neighbours)
+                {
+                    int next = base + j + d;
+                    if (cells[next] >= BLANK && cells[next] < MINE)
+                        cells[next]++;
+                }
+            }
+        }
+    }
+
+    public int rows()
+    {
+        return rows;
+    }
+
+    public int cols()
+    {
+        return cols;
+    }
+
+    /* Distance between two vertically adjacent cells */
+    public int stride()
+    {
+        return stride;
+    }
+
+    /* Length of the flat array, guard ring included */
+    public int capacity()
+    {
+        return cells.length;
+    }
+
+    /* Flat offsets of the 8 neighbours, add them to an index */
+    public int[] neighbours()
+    {
+        return neighbours;
+    }
+
+    public int index(int x, int y)
+    {
+        return (x + 1) * stride + (y + 1);
+    }
+
+    public int row(int index)
+    {
+        return index / stride - 1;
+    }
+
+    public int col(int index)
+    {
+        return index % stride - 1;
+    }
+
+    public byte get(int index)
+    {
+        return cells[index];
+    }
+
+    public byte get(int x, int y)
+    {
+        return cells[index(x, y)];
+    }
+
+    public void set(int index, byte value)
+    {
+        cells[index] = value;
+    }
+
+    public void set(int x, int y, byte value)
+    {
+        cells[index(x, y)] = value;
+    }
+
+    /* Raw cells for tight loops, index with index(x, y) */
+    public byte[] cells()
+    {
+        return cells;
+    }
+}
@@ -0,0 +1,115 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/******************************************************************************
+ *  A fixed size bit set over flat cell indexes, one bit per cell in a
+ *  long[].
+ *
+ *  Unlike java.util.BitSet the whole-set operations work in place on the
+ *  words of both sets, so comparing the flags with the mines of a board
+ *  allocates nothing and touches 64 cells per step.
+ *
+ ******************************************************************************/
+
+public class CellBits {
+
+    private final long[] words;
+
+    /**
+     * @param capacity indexes must be in [0, capacity)
+     */
+    public CellBits(int capacity)
+    {
+        words = new long[(capacity + 63) >>> 6];
+    }
+
+    public boolean get(int index)
+    {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index)
+    {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index)
+    {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public void clearAll()
+    {
+        Arrays.fill(words, 0L);
+    }
+
+    public int cardinality()
+    {
+        int count = 0;
+        for (long w : words)
+        {
+            count += Long.bitCount(w);
+        }
+        return count;
+    }
+
+    /* First set index at or after from, -1 if none */
+    public int nextSetBit(int from)
+    {
+        int w = from >>> 6;
+        if (w >= words.length)
+        {
+            return -1;
+        }
+        long word = words[w] & (-1L << from);
+        while (true)
+        {
+            if (word != 0)
+            {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words.length)
+            {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /* this = this AND NOT other, both sets must have the same capacity */
+    public void andNot(CellBits other)
+    {
+        for (int i = 0; i < words.length; i++)
+        {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /* First index set here but not in other, -1 if this is a subset of other */
+    public int firstNotIn(CellBits other)
+    {
+        for (int i = 0; i < words.length; i++)
+        {
+            long extra = words[i] & ~other.words[i];
+            if (extra != 0)
+            {
+                return (i << 6) + Long.numberOfTrailingZeros(extra);
+            }
+        }
+        return -1;
+    }
+
+    /* true if both sets hold exactly the same indexes (XOR of every word is 0) */
+    public boolean sameAs(CellBits other)
+    {
+        for (int i = 0; i < words.length; i++)
+        {
+            if ((words[i] ^ other.words[i]) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
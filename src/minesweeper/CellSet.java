@@ -0,0 +1,99 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/******************************************************************************
+ *  A set of flat cell indexes with O(1) add, remove, contains and random
+ *  pick.
+ *
+ *  The members are kept densely in cells[0..size), slot[index] tells where
+ *  a member sits (-1 when absent). Remove moves the last member into the
+ *  hole, so the dense part never has gaps and nothing is boxed.
+ *
+ ******************************************************************************/
+
+public class CellSet {
+
+    private final int[] slot;
+    private final int[] cells;
+    private int size;
+
+    /**
+     * @param capacity indexes must be in [0, capacity)
+     */
+    public CellSet(int capacity)
+    {
+        slot = new int[capacity];
+        cells = new int[capacity];
+        Arrays.fill(slot, -1);
+    }
+
+    /* return false if index was already a member */
+    public boolean add(int index)
+    {
+        if (slot[index] >= 0)
+        {
+            return false;
+        }
+        slot[index] = size;
+        cells[size++] = index;
+        return true;
+    }
+
+    /* return false if index was not a member */
+    public boolean remove(int index)
+    {
+        int hole = slot[index];
+        if (hole < 0)
+        {
+            return false;
+        }
+        int last = cells[--size];
+        cells[hole] = last;
+        slot[last] = hole;
+        slot[index] = -1;
+        return true;
+    }
+
+    public boolean contains(int index)
+    {
+        return slot[index] >= 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /* i-th member, the order changes when members are removed */
+    public int get(int i)
+    {
+        return cells[i];
+    }
+
+    /* A uniformly random member, the set must not be empty */
+    public int pick(SplittableRandom rand)
+    {
+        return cells[rand.nextInt(size)];
+    }
+
+    /* An independent set with the same members in the same order */
+    public CellSet copy()
+    {
+        CellSet copy = new CellSet(slot.length);
+        System.arraycopy(slot, 0, copy.slot, 0, slot.length);
+        System.arraycopy(cells, 0, copy.cells, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            slot[cells[i]] = -1;
+        }
+        size = 0;
+    }
+}
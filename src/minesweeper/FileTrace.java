@@ -0,0 +1,75 @@
+package minesweeper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/******************************************************************************
+ *  SolverListener that streams every event to a file through a buffer,
+ *  9 bytes per event: type (byte), index (int), argument (int). The index
+ *  is -1 for round and end events.
+ *
+ ******************************************************************************/
+
+public class FileTrace implements SolverListener, Closeable {
+
+    private final DataOutputStream out;
+
+    public FileTrace(String filename) throws IOException
+    {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+    }
+
+    @Override
+    public void opened(int index, int count)
+    {
+        write(OPEN, index, count);
+    }
+
+    @Override
+    public void flagged(int index)
+    {
+        write(FLAG, index, 0);
+    }
+
+    @Override
+    public void guessed(int index)
+    {
+        write(GUESS, index, 0);
+    }
+
+    @Override
+    public void round(int round)
+    {
+        write(ROUND, -1, round);
+    }
+
+    @Override
+    public void finished(boolean won)
+    {
+        write(END, -1, won ? 1 : 0);
+    }
+
+    private void write(int type, int index, int arg)
+    {
+        try
+        {
+            out.writeByte(type);
+            out.writeInt(index);
+            out.writeInt(arg);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+}
@@ -0,0 +1,222 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/******************************************************************************
+ *  The constraints a game position puts on its close squares, as used by
+ *  the solver backends.
+ *
+ *  The frontier is every close square next to a number, the other close
+ *  squares are interior. Frontier squares are grouped into connected
+ *  components, two squares being connected when a number touches both,
+ *  so the components can be solved independently. Each number is stored
+ *  as {number index, mines left, close squares...}.
+ *
+ ******************************************************************************/
+
+final class Frontier {
+
+    /* close squares touching no number, and the lowest of them (-1 if none) */
+    final int interior;
+    final int firstInterior;
+    /* per component its squares (sorted flat indexes) and its numbers */
+    final List<int[]> cells;
+    final List<List<int[]>> numbers;
+
+    private Frontier(int interior, int firstInterior, List<int[]> cells, List<List<int[]>> numbers)
+    {
+        this.interior = interior;
+        this.firstInterior = firstInterior;
+        this.cells = cells;
+        this.numbers = numbers;
+    }
+
+    /**
+     * @param gameMap game layer
+     * @param closed every CLOSE square of gameMap
+     * @return
+     */
+    static Frontier of(Board gameMap, CellSet closed)
+    {
+        byte[] game = gameMap.cells();
+        int[] around = gameMap.neighbours();
+
+        // split the close squares into frontier and interior
+        int[] frontier = new int[closed.size()];
+        int nf = 0;
+        int interior = 0;
+        int firstInterior = -1;
+        for (int i = 0; i < closed.size(); i++)
+        {
+            int cell = closed.get(i);
+            if (touchesNumber(game, around, cell))
+            {
+                frontier[nf++] = cell;
+            }
+            else
+            {
+                interior++;
+                if (firstInterior < 0 || cell < firstInterior)
+                    firstInterior = cell;
+            }
+        }
+        frontier = Arrays.copyOf(frontier, nf);
+        Arrays.sort(frontier);
+
+        // the numbers touching the frontier, sorted and unique
+        int[] numbers = new int[nf * 8];
+        int nn = 0;
+        for (int f : frontier)
+        {
+            for (int d : around)
+            {
+                if (isNumber(game[f + d]))
+                    numbers[nn++] = f + d;
+            }
+        }
+        Arrays.sort(numbers, 0, nn);
+        int unique = 0;
+        for (int i = 0; i < nn; i++)
+        {
+            if (unique == 0 || numbers[unique - 1] != numbers[i])
+                numbers[unique++] = numbers[i];
+        }
+        nn = unique;
+
+        // union the frontier squares of every number
+        int[] parent = new int[nf];
+        for (int i = 0; i < nf; i++)
+        {
+            parent[i] = i;
+        }
+        for (int c = 0; c < nn; c++)
+        {
+            int first = -1;
+            for (int d : around)
+            {
+                int cell = numbers[c] + d;
+                if (game[cell] != Board.CLOSE)
+                    continue;
+                int id = Arrays.binarySearch(frontier, cell);
+                if (first < 0)
+                    first = id;
+                else
+                    parent[find(parent, id)] = find(parent, first);
+            }
+        }
+
+        // one component per root, each number belongs to the component of its squares
+        int[] compOf = new int[nf];
+        int[] compSize = new int[nf];
+        int comps = 0;
+        Arrays.fill(compOf, -1);
+        for (int i = 0; i < nf; i++)
+        {
+            int root = find(parent, i);
+            if (compOf[root] < 0)
+            {
+                compOf[root] = comps++;
+            }
+            compOf[i] = compOf[root];
+            compSize[compOf[i]]++;
+        }
+        List<int[]> cells = new ArrayList<int[]>(comps);
+        List<List<int[]>> constraints = new ArrayList<List<int[]>>(comps);
+        for (int j = 0; j < comps; j++)
+        {
+            cells.add(new int[compSize[j]]);
+            constraints.add(new ArrayList<int[]>());
+        }
+        int[] fill = new int[comps];
+        for (int i = 0; i < nf; i++)
+        {
+            cells.get(compOf[i])[fill[compOf[i]]++] = frontier[i];
+        }
+        for (int c = 0; c < nn; c++)
+        {
+            int number = numbers[c];
+            int rest = game[number];
+            int[] close = new int[8];
+            int size = 0;
+            for (int d : around)
+            {
+                byte v = game[number + d];
+                if (v == Board.MINE)
+                    rest--;
+                else if (v == Board.CLOSE)
+                    close[size++] = number + d;
+            }
+            int[] constraint = new int[size + 2];
+            constraint[0] = number;
+            constraint[1] = rest;
+            System.arraycopy(close, 0, constraint, 2, size);
+            constraints.get(compOf[Arrays.binarySearch(frontier, close[0])]).add(constraint);
+        }
+        return new Frontier(interior, firstInterior, cells, constraints);
+    }
+
+    /* Number of components */
+    int size()
+    {
+        return cells.size();
+    }
+
+    private static int find(int[] parent, int i)
+    {
+        while (parent[i] != i)
+        {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    static boolean isNumber(byte v)
+    {
+        return v > Board.BLANK && v < Board.MINE;
+    }
+
+    private static boolean touchesNumber(byte[] game, int[] around, int cell)
+    {
+        for (int d : around)
+        {
+            if (isNumber(game[cell + d]))
+                return true;
+        }
+        return false;
+    }
+
+    /* Key of a component for memos: its squares, then (number, mines left) of every number */
+    static final class Key
+    {
+        private final int[] data;
+        private final int hash;
+
+        Key(int[] squares, List<int[]> numbers)
+        {
+            data = new int[squares.length + 2 * numbers.size()];
+            System.arraycopy(squares, 0, data, 0, squares.length);
+            int at = squares.length;
+            for (int[] number : numbers)
+            {
+                data[at++] = number[0];
+                data[at++] = number[1];
+            }
+            hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Key && Arrays.equals(data, ((Key) other).data);
+        }
+    }
+}
@@ -0,0 +1,672 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/******************************************************************************
+ *  Mine probabilities of the close squares, used by reduceMine once the
+ *  single square and pairwise rules are stuck.
+ *
+ *  The frontier (close squares next to a number) is split into connected
+ *  components, two squares being connected when a number touches both.
+ *  Each component is enumerated by backtracking, counting for every mine
+ *  total k the valid assignments and how many of them put a mine on each
+ *  square. The components are then combined with the mines left on the
+ *  board: a frontier total of K leaves C(interior, minesLeft - K) ways to
+ *  fill the interior squares.
+ *
+ *  A square that is a mine in no valid assignment is safe, one that is a
+ *  mine in all of them is a mine. Otherwise guess() is the square with the
+ *  lowest mine probability, interior squares included. Which assignments
+ *  are valid is decided on exact counts, never on the floating point
+ *  weights, which can underflow: with every component exact an
+ *  assignment must leave a mine count the interior can hold, once one is
+ *  approximated only the numbers of its own component constrain it, as
+ *  the mines left for the others are an estimate. The estimate only
+ *  ranks guesses.
+ *
+ *  Components are enumerated in parallel on a fork-join pool. A component
+ *  larger than MAX_COMPONENT squares, or one that needs more than
+ *  NODE_BUDGET search steps, falls back to a local estimate (the highest
+ *  mines-left / close-squares ratio of its numbers), which never forces a
+ *  square. Results are memoized per component, so components a guess did
+ *  not touch are not enumerated again.
+ *
+ *  An anytime solve (Game.solveWithin) can pass a smaller node budget and
+ *  a deadline. A component cut short by either falls back the same way,
+ *  but is not memoized, a later analyze with more time tries it again.
+ *  Game does not play the forced squares of an analyze that cut anything.
+ *
+ ******************************************************************************/
+
+public class FrontierSolver {
+
+    public static final int MAX_COMPONENT = 48;
+    public static final long NODE_BUDGET = 1L << 20;
+
+    /* below this many frontier squares the components are enumerated on the calling thread */
+    private static final int PARALLEL_MIN = 32;
+    private static final int MEMO_MAX = 4096;
+
+    private final ForkJoinPool pool;
+    private final Map<Frontier.Key, Component> memo = new HashMap<Frontier.Key, Component>();
+
+    private int[] safe = new int[16];
+    private int safeCount;
+    private int[] mines = new int[16];
+    private int mineCount;
+    private int guess;
+    private double guessProbability;
+    private int approximated;
+    private long nodes;
+    private int cut;
+
+    private double[] logFactorial = {0.0};
+
+    /**
+     * @param pool pool for the components, null to enumerate on the calling thread
+     */
+    public FrontierSolver(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Work out the forced squares and the best guess of a game position.
+     * @param gameMap game layer
+     * @param closed every CLOSE square of gameMap
+     * @param minesLeft mines not flagged yet
+     */
+    public void analyze(Board gameMap, CellSet closed, int minesLeft)
+    {
+        analyze(gameMap, closed, minesLeft, NODE_BUDGET, Long.MAX_VALUE);
+    }
+
+    /**
+     * analyze within a budget, see nodes() for what it used.
+     * @param gameMap game layer
+     * @param closed every CLOSE square of gameMap
+     * @param minesLeft mines not flagged yet
+     * @param nodeBudget search steps a component may take, at most NODE_BUDGET are used
+     * @param deadline System.nanoTime() to stop enumerating at, Long.MAX_VALUE for none
+     */
+    public void analyze(Board gameMap, CellSet closed, int minesLeft, long nodeBudget, long deadline)
+    {
+        safeCount = 0;
+        mineCount = 0;
+        guess = -1;
+        guessProbability = 1.0;
+        approximated = 0;
+        nodes = 0;
+        cut = 0;
+
+        Frontier frontier = Frontier.of(gameMap, closed);
+        List<Component> comps = new ArrayList<Component>(frontier.size());
+
+        // memo lookups on this thread, enumerate the rest, possibly in parallel
+        List<Component> todo = new ArrayList<Component>();
+        int todoCells = 0;
+        if (memo.size() > MEMO_MAX)
+        {
+            memo.clear();
+        }
+        for (int j = 0; j < frontier.size(); j++)
+        {
+            Frontier.Key key = new Frontier.Key(frontier.cells.get(j), frontier.numbers.get(j));
+            Component comp = memo.get(key);
+            if (comp == null)
+            {
+                comp = new Component(key, frontier.cells.get(j), frontier.numbers.get(j));
+                comp.nodeBudget = Math.min(nodeBudget, NODE_BUDGET);
+                comp.deadline = deadline;
+                todo.add(comp);
+                todoCells += comp.cells.length;
+            }
+            comps.add(comp);
+        }
+        if (pool != null && todo.size() > 1 && todoCells >= PARALLEL_MIN)
+        {
+            pool.invoke(new Enumerate(todo));
+        }
+        else
+        {
+            for (Component comp : todo)
+            {
+                comp.solve();
+            }
+        }
+        for (Component comp : todo)
+        {
+            nodes += comp.nodes;
+            if (comp.cut)
+                cut++;
+            else
+                memo.put(comp.key, comp);
+        }
+
+        combine(comps, frontier.interior, frontier.firstInterior, minesLeft);
+    }
+
+    /* Weigh the component solutions with the interior, find forced squares and the best guess */
+    private void combine(List<Component> comps, int interior, int firstInterior, int minesLeft)
+    {
+        // only exact components take part in the global weighting
+        double expectedApprox = 0;
+        List<Component> exact = new ArrayList<Component>();
+        for (Component comp : comps)
+        {
+            if (comp.exact)
+            {
+                exact.add(comp);
+            }
+            else
+            {
+                approximated++;
+                for (double p : comp.approx)
+                    expectedApprox += p;
+            }
+        }
+        int left = minesLeft - (int) Math.round(expectedApprox);
+
+        // prefix and suffix convolutions give "all other components" for every component
+        int count = exact.size();
+        double[][] prefix = new double[count + 1][];
+        double[][] suffix = new double[count + 1][];
+        boolean[][] prefixTotals = new boolean[count + 1][];
+        boolean[][] suffixTotals = new boolean[count + 1][];
+        prefix[0] = new double[] {1.0};
+        suffix[count] = new double[] {1.0};
+        prefixTotals[0] = new boolean[] {true};
+        suffixTotals[count] = new boolean[] {true};
+        for (int j = 0; j < count; j++)
+        {
+            prefix[j + 1] = convolve(prefix[j], exact.get(j).scaled);
+            prefixTotals[j + 1] = sums(prefixTotals[j], possible(exact.get(j).ways));
+        }
+        for (int j = count - 1; j >= 0; j--)
+        {
+            suffix[j] = convolve(exact.get(j).scaled, suffix[j + 1]);
+            suffixTotals[j] = sums(possible(exact.get(j).ways), suffixTotals[j + 1]);
+        }
+        double[] total = prefix[count];
+
+        // weight of a frontier total K: ways to put the other mines on the interior
+        double[] weight = new double[total.length];
+        double best = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < total.length; k++)
+        {
+            int rest = left - k;
+            weight[k] = total[k] > 0 && rest >= 0 && rest <= interior ? logChoose(interior, rest) : Double.NaN;
+            if (!Double.isNaN(weight[k]))
+                best = Math.max(best, weight[k]);
+        }
+        boolean counted = best != Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < total.length; k++)
+        {
+            // without a consistent mine count every total weighs the same
+            weight[k] = !counted ? 1.0 : Double.isNaN(weight[k]) ? 0.0 : Math.exp(weight[k] - best);
+        }
+        double z = 0;
+        double interiorMines = 0;
+        boolean interiorAlwaysEmpty = true;
+        boolean interiorAlwaysFull = true;
+        for (int k = 0; k < total.length; k++)
+        {
+            double w = total[k] * weight[k];
+            z += w;
+            if (w > 0 && interior > 0)
+            {
+                int rest = left - k;
+                interiorMines += w * rest / interior;
+                interiorAlwaysEmpty &= rest == 0;
+                interiorAlwaysFull &= rest == interior;
+            }
+        }
+
+        for (int j = 0; j < count; j++)
+        {
+            Component comp = exact.get(j);
+            double[] others = convolve(prefix[j], suffix[j + 1]);
+            double[] h = new double[comp.ways.length];
+            for (int kj = 0; kj < h.length; kj++)
+            {
+                for (int ko = 0; ko < others.length; ko++)
+                    h[kj] += others[ko] * weight[kj + ko];
+            }
+            boolean[] valid = validTotals(comp.ways, prefixTotals[j], suffixTotals[j + 1], minesLeft, interior);
+            for (int c = 0; c < comp.cells.length; c++)
+            {
+                double mine = 0;
+                boolean any = false;
+                boolean never = true;
+                boolean always = true;
+                for (int kj = 0; kj < h.length; kj++)
+                {
+                    if (h[kj] > 0 && comp.ways[kj] > 0)
+                        mine += comp.mineWays[c][kj] * comp.scale * h[kj];
+                    if (!valid[kj])
+                        continue;
+                    any = true;
+                    never &= comp.mineWays[c][kj] == 0;
+                    always &= comp.mineWays[c][kj] == comp.ways[kj];
+                }
+                if (any && never)
+                    safe = push(safe, safeCount++, comp.cells[c]);
+                else if (any && always)
+                    mines = push(mines, mineCount++, comp.cells[c]);
+                else
+                    consider(comp.cells[c], z > 0 ? mine / z : 0.5);
+            }
+        }
+        for (Component comp : comps)
+        {
+            if (!comp.exact)
+            {
+                for (int c = 0; c < comp.cells.length; c++)
+                    consider(comp.cells[c], comp.approx[c]);
+            }
+        }
+
+        if (interior > 0 && z > 0 && approximated == 0)
+        {
+            if (interiorAlwaysEmpty)
+                consider(firstInterior, 0.0);
+            else if (interiorAlwaysFull)
+                consider(firstInterior, 1.0);
+            else
+                consider(firstInterior, interiorMines / z);
+        }
+        else if (interior > 0)
+        {
+            consider(firstInterior, Math.min(1.0, Math.max(0.0, (double) left / interior)));
+        }
+    }
+
+    /**
+     * Mine totals of a component that some valid assignment of the whole frontier has.
+     * @param ways assignments of the component per total
+     * @param before totals the components before it can have
+     * @param after totals the components after it can have
+     * @param minesLeft mines not flagged yet, only used when no component is approximated
+     * @param interior close squares touching no number
+     */
+    private boolean[] validTotals(long[] ways, boolean[] before, boolean[] after, int minesLeft, int interior)
+    {
+        boolean[] valid = new boolean[ways.length];
+        boolean[] others = approximated == 0 ? sums(before, after) : null;
+        for (int kj = 0; kj < ways.length; kj++)
+        {
+            if (ways[kj] == 0)
+                continue;
+            if (others == null)
+            {
+                valid[kj] = true;
+                continue;
+            }
+            for (int ko = 0; ko < others.length && !valid[kj]; ko++)
+            {
+                int rest = minesLeft - kj - ko;
+                valid[kj] = others[ko] && rest >= 0 && rest <= interior;
+            }
+        }
+        return valid;
+    }
+
+    /* Totals with at least one assignment */
+    private static boolean[] possible(long[] ways)
+    {
+        boolean[] totals = new boolean[ways.length];
+        for (int k = 0; k < ways.length; k++)
+            totals[k] = ways[k] > 0;
+        return totals;
+    }
+
+    /* Totals a + b for every possible a of x and b of y */
+    private static boolean[] sums(boolean[] x, boolean[] y)
+    {
+        boolean[] sum = new boolean[x.length + y.length - 1];
+        for (int a = 0; a < x.length; a++)
+        {
+            if (!x[a])
+                continue;
+            for (int b = 0; b < y.length; b++)
+                sum[a + b] |= y[b];
+        }
+        return sum;
+    }
+
+    private void consider(int cell, double probability)
+    {
+        if (guess < 0 || probability < guessProbability)
+        {
+            guess = cell;
+            guessProbability = probability;
+        }
+    }
+
+    /* Number of squares proven safe by the last analyze */
+    public int safeCount()
+    {
+        return safeCount;
+    }
+
+    /* The squares proven safe in [0, safeCount()), valid until the next analyze */
+    public int[] safe()
+    {
+        return safe;
+    }
+
+    /* Number of squares proven to be mines by the last analyze */
+    public int mineCount()
+    {
+        return mineCount;
+    }
+
+    /* The squares proven to be mines in [0, mineCount()), valid until the next analyze */
+    public int[] mines()
+    {
+        return mines;
+    }
+
+    /* Close square least likely to be a mine, -1 if there is none */
+    public int guess()
+    {
+        return guess;
+    }
+
+    public double guessProbability()
+    {
+        return guessProbability;
+    }
+
+    /* Components of the last analyze that fell back to the local estimate */
+    public int approximated()
+    {
+        return approximated;
+    }
+
+    /* Components of the last analyze cut short by its node budget or deadline */
+    public int cut()
+    {
+        return cut;
+    }
+
+    /* Search steps the last analyze took, memoized components cost none */
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    /* Drop the memoized components, e.g. when a new game starts */
+    public void clear()
+    {
+        memo.clear();
+    }
+
+    private double logChoose(int n, int k)
+    {
+        if (logFactorial.length <= n)
+        {
+            int from = logFactorial.length;
+            logFactorial = Arrays.copyOf(logFactorial, Math.max(n + 1, from * 2));
+            for (int i = from; i < logFactorial.length; i++)
+                logFactorial[i] = logFactorial[i - 1] + Math.log(i);
+        }
+        return logFactorial[n] - logFactorial[k] - logFactorial[n - k];
+    }
+
+    private static double[] convolve(double[] a, double[] b)
+    {
+        double[] c = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++)
+        {
+            if (a[i] == 0)
+                continue;
+            for (int j = 0; j < b.length; j++)
+                c[i + j] += a[i] * b[j];
+        }
+        return c;
+    }
+
+    private static int[] push(int[] array, int at, int value)
+    {
+        if (at == array.length)
+            array = Arrays.copyOf(array, at * 2);
+        array[at] = value;
+        return array;
+    }
+
+    /* One connected group of frontier squares and the numbers that touch it */
+    private static final class Component
+    {
+        final Frontier.Key key;
+        /* squares in search order, flat indexes */
+        final int[] cells;
+        /* for every square the numbers touching it, for every number its mines left */
+        final int[][] cellNumbers;
+        final int[] rest;
+        final int[] open;
+
+        boolean exact;
+        long[] ways;
+        long[][] mineWays;
+        double[] scaled;
+        double scale;
+        double[] approx;
+
+        private final boolean[] value;
+        private final int[] placed;
+        private long nodes;
+        /* limits of this enumeration, cut if it stopped at one below NODE_BUDGET */
+        long nodeBudget = NODE_BUDGET;
+        long deadline = Long.MAX_VALUE;
+        boolean cut;
+
+        Component(Frontier.Key key, int[] squares, List<int[]> numbers)
+        {
+            this.key = key;
+            int n = squares.length;
+            rest = new int[numbers.size()];
+            open = new int[numbers.size()];
+
+            // order the squares breadth first through the numbers so numbers close early
+            int[] order = new int[n];
+            boolean[] seen = new boolean[n];
+            int head = 0;
+            int tail = 0;
+            for (int start = 0; start < n; start++)
+            {
+                if (seen[start])
+                    continue;
+                seen[start] = true;
+                order[tail++] = start;
+                while (head < tail)
+                {
+                    int cell = squares[order[head++]];
+                    for (int[] number : numbers)
+                    {
+                        if (!contains(number, cell))
+                            continue;
+                        for (int i = 2; i < number.length; i++)
+                        {
+                            int id = Arrays.binarySearch(squares, number[i]);
+                            if (!seen[id])
+                            {
+                                seen[id] = true;
+                                order[tail++] = id;
+                            }
+                        }
+                    }
+                }
+            }
+            cells = new int[n];
+            for (int i = 0; i < n; i++)
+            {
+                cells[i] = squares[order[i]];
+            }
+
+            int[] touching = new int[n];
+            for (int c = 0; c < numbers.size(); c++)
+            {
+                int[] number = numbers.get(c);
+                rest[c] = number[1];
+                open[c] = number.length - 2;
+                for (int i = 2; i < number.length; i++)
+                    touching[indexOf(cells, number[i])]++;
+            }
+            cellNumbers = new int[n][];
+            for (int i = 0; i < n; i++)
+            {
+                cellNumbers[i] = new int[touching[i]];
+                touching[i] = 0;
+            }
+            for (int c = 0; c < numbers.size(); c++)
+            {
+                int[] number = numbers.get(c);
+                for (int i = 2; i < number.length; i++)
+                {
+                    int id = indexOf(cells, number[i]);
+                    cellNumbers[id][touching[id]++] = c;
+                }
+            }
+
+            value = new boolean[n];
+            placed = new int[numbers.size()];
+        }
+
+        void solve()
+        {
+            int n = cells.length;
+            if (n <= MAX_COMPONENT)
+            {
+                ways = new long[n + 1];
+                mineWays = new long[n][n + 1];
+                exact = search(0, 0);
+            }
+            if (exact)
+            {
+                long max = 1;
+                for (long w : ways)
+                    max = Math.max(max, w);
+                scale = 1.0 / max;
+                scaled = new double[n + 1];
+                for (int k = 0; k <= n; k++)
+                    scaled[k] = ways[k] * scale;
+            }
+            else
+            {
+                ways = null;
+                mineWays = null;
+                approx = new double[n];
+                for (int i = 0; i < n; i++)
+                {
+                    for (int c : cellNumbers[i])
+                        approx[i] = Math.max(approx[i], (double) rest[c] / open[c]);
+                }
+            }
+        }
+
+        /* false once the node budget or the time is used up */
+        private boolean search(int i, int mines)
+        {
+            if (++nodes > nodeBudget)
+            {
+                cut = nodeBudget < NODE_BUDGET;
+                return false;
+            }
+            if (deadline != Long.MAX_VALUE && (nodes & 1023) == 0 && System.nanoTime() - deadline > 0)
+            {
+                cut = true;
+                return false;
+            }
+            if (i == cells.length)
+            {
+                ways[mines]++;
+                for (int j = 0; j < cells.length; j++)
+                {
+                    if (value[j])
+                        mineWays[j][mines]++;
+                }
+                return true;
+            }
+            for (int v = 0; v <= 1; v++)
+            {
+                boolean fits = true;
+                for (int c : cellNumbers[i])
+                {
+                    open[c]--;
+                    placed[c] += v;
+                    if (placed[c] > rest[c] || placed[c] + open[c] < rest[c])
+                        fits = false;
+                }
+                value[i] = v == 1;
+                boolean done = !fits || search(i + 1, mines + v);
+                for (int c : cellNumbers[i])
+                {
+                    open[c]++;
+                    placed[c] -= v;
+                }
+                if (!done)
+                    return false;
+            }
+            value[i] = false;
+            return true;
+        }
+
+        private static boolean contains(int[] number, int cell)
+        {
+            for (int i = 2; i < number.length; i++)
+            {
+                if (number[i] == cell)
+                    return true;
+            }
+            return false;
+        }
+
+        private static int indexOf(int[] cells, int cell)
+        {
+            for (int i = 0; i < cells.length; i++)
+            {
+                if (cells[i] == cell)
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    /* Enumerates a list of components as parallel fork-join subtasks */
+    private static final class Enumerate extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Component> comps;
+
+        Enumerate(List<Component> comps)
+        {
+            this.comps = comps;
+        }
+
+        @Override
+        protected void compute()
+        {
+            List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+            for (final Component comp : comps)
+            {
+                tasks.add(new RecursiveAction()
+                {
+                    @Override
+                    protected void compute()
+                    {
+                        comp.solve();
+                    }
+                });
+            }
+            invokeAll(tasks);
+        }
+    }
+}
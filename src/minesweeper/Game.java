@@ -0,0 +1,1278 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/******************************************************************************
+ *  One game of minesweeper: the mine map, the game layer a player sees and
+ *  the moves on it, without the file handling and printing of the
+ *  Minesweeper harness.
+ *
+ *  Squares are addressed like Board: (x, y) or a flat index. open, flag,
+ *  unflag and chord are the moves of a player, state and remainingMines
+ *  what the player sees. The index based methods (openDeduced, flagSquare,
+ *  guess, getCloseSquares) are what a Solver drives the game with, and
+ *  reduceMine is the built-in heuristic solver; solveWithin runs it under
+ *  a time or operation budget.
+ *
+ *  Nothing is static, every game owns its boards, ledgers and solver
+ *  buffers, so any number of games can run on as many threads. Every
+ *  public method that reads or changes the game is synchronized, so one
+ *  game can also be shared between threads, and a solver calls the index
+ *  based methods under the lock solve already holds. getGameMap,
+ *  getCloseSquares and getMineMap hand out copies; the solver stages
+ *  inside the package read the live board and close set. Only the helpers
+ *  that work on a board passed in (printMap, getAllMineLocation and the
+ *  file methods of Minesweeper) run without the lock.
+ *
+ ******************************************************************************/
+
+public class Game {
+
+	public final int MINE=Board.MINE;
+	public final int CLOSE=Board.CLOSE;  
+	public final int BLANK=Board.BLANK;
+
+	public enum State
+	{
+		PLAYING, WON, LOST
+	}
+
+	Board mineMap;
+	Board gameMap;
+	/* mine ledger and flag ledger, one bit per square keyed by flat index */
+	CellBits mineList;
+	CellBits flagList;
+	int mineLeft;
+	int mineTotal;
+	/* squares flagged now, safe squares still closed, a mine was opened */
+	int flags;
+	int safeLeft;
+	boolean lost;
+	
+	/* Per-game state; nothing here is shared between instances so games can run on any thread */
+	boolean noDebugMsg = true;
+	SolverListener listener = SolverListener.NONE;
+        private int bombAction;
+        private int unSureMine;
+        int guessCount;
+        SplittableRandom rand;
+
+        /* per-game counters, added to a shared Metrics by Minesweeper.recordTo */
+        long floodOpened;
+        long deducedOpened;
+        long flagCount;
+        long roundCount;
+        long checkCount;
+        long createNanos;
+        long pairResolved;
+        long frontierResolved;
+ 	
+        /* flood fill stack of openSquare, grows on demand and is kept for the next call */
+        private int[] frontier = new int[64];
+ 	
+        /* row and column step of each Board.neighbours() offset */
+        private static final int[] AROUND_ROW = {-1, -1, -1, 0, 0, 1, 1, 1};
+        private static final int[] AROUND_COL = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+        /* scratch of reducePairs: frontier numbers and flat offsets of the 7x7 frame bits */
+        private int[] pairCells = new int[64];
+        private int[] pairFrame;
+        private int pairStride;
+
+        /* pairwise results by local window, kept from game to game, none unless setPatternCache; see PatternCache */
+        private PatternCache patternCache;
+        long patternHits;
+        long patternMisses;
+        /* result of pairRule: squares only A touches are safe, those only B touches mines */
+        private long pairSafe;
+        private long pairMine;
+
+        /* probability stage of reduceMine, created on the first stall */
+        private FrontierSolver frontierSolver;
+
+        /* numbered squares waiting to be re-checked by reduceMine, only active while it runs */
+        private int[] worklist = new int[64];
+        private int worklistSize;
+        private boolean[] worklistQueued;
+        private boolean worklistActive;
+
+        /* limit of the running solveWithin, null otherwise, and the guess it stopped before */
+        private SolveBudget budget;
+        private int budgetGuess;
+ 	
+        /* the CLOSE neighbours of one number, opened or flagged as one batch */
+        private final int[] aroundBatch = new int[8];
+ 	
+        /* every CLOSE square of the game map */
+        CellSet unsolvedMineCoor;
+
+        /* undo journal, (index << 2 | kind) per square changed while a snapshot is open */
+        private static final int OPENED = 0;
+        private static final int FLAGGED = 1;
+        private static final int UNFLAGGED = 2;
+        private int[] journal = new int[64];
+        private int journalSize;
+        private int snapshots;
+
+	/**
+	 * Start a game on mineMap, the squares around the blanks are already open.
+	 * The mine map is only read, so one board can back many games.
+	 * @param mineMap
+	 * @param rand source of the random decisions of the solver
+	 */
+	public Game(Board mineMap, SplittableRandom rand) {
+
+		startGame(mineMap, rand);
+	}
+
+	/* A game without a board yet, startGame has to run before anything else */
+	Game() {
+	}
+
+	/**
+	 * Start the next game on an existing minemap, the same game new Game(mineMap, rand)
+	 * would play. The buffers are reused when the board has the shape of the last one.
+	 * @param mineMap
+	 * @param rand
+	 */
+	public synchronized void reset(Board mineMap, SplittableRandom rand) {
+
+		startGame(mineMap, rand);
+	}
+	
+	/* Close the game layer over mineMap and clear the ledgers and counters, keeping the buffers of the last game */
+	void startGame(Board mineMap, SplittableRandom rand) {
+
+		boolean reuse = mineMap.sameShape(gameMap);
+		this.rand = rand;
+		this.mineMap = mineMap;
+		bombAction = 0;
+		unSureMine = 0;
+		guessCount = 0;
+		floodOpened = 0;
+		deducedOpened = 0;
+		flagCount = 0;
+		roundCount = 0;
+		checkCount = 0;
+		pairResolved = 0;
+		patternHits = 0;
+		patternMisses = 0;
+		frontierResolved = 0;
+		lost = false;
+		journalSize = 0;
+		snapshots = 0;
+		if (frontierSolver != null)
+			frontierSolver.clear();
+
+		if (reuse) {
+			if (unsolvedMineCoor != null)
+				unsolvedMineCoor.clear();
+			gameMap.fill(Board.CLOSE);
+			openBlanks(mineMap, gameMap);
+			mineList.clearAll();
+			addMines(mineMap, mineList);
+			flagList.clearAll();
+			mineLeft = mineList.cardinality();
+			mineTotal = mineLeft;
+			flags = 0;
+		} else {
+			unsolvedMineCoor = null;
+			gameMap = createGameMap(mineMap);
+			setMineList(mineMap);
+		}
+		fillCloseSquares();
+		safeLeft = unsolvedMineCoor.size() - mineTotal;
+	}
+
+	/**
+	 * Open square (x, y), a blank opens its neighbours as well.
+	 * @param x row
+	 * @param y column
+	 * @return number of squares opened, 0 if it was not CLOSE or the game is over, -1 if it was a mine
+	 */
+	public synchronized int open(int x, int y) {
+
+		if (lost || safeLeft == 0)
+			return 0;
+		int opened = OpenUnflagMine(gameMap.index(x, y));
+		if (opened > 0)
+			floodOpened += opened;
+		return opened;
+	}
+
+	/* Flag CLOSE square (x, y) as a mine, false if it is not CLOSE or the game is over */
+	public synchronized boolean flag(int x, int y) {
+
+		int index = gameMap.index(x, y);
+		if (lost || safeLeft == 0 || gameMap.get(index) != CLOSE)
+			return false;
+		flagMine(index);
+		return true;
+	}
+
+	/* Take the flag off square (x, y), false if it has none */
+	public synchronized boolean unflag(int x, int y) {
+
+		int index = gameMap.index(x, y);
+		if (lost || safeLeft == 0 || !flagList.get(index))
+			return false;
+		flagList.clear(index);
+		gameMap.set(index, Board.CLOSE);
+		unsolvedMineCoor.add(index);
+		flags--;
+		record(index, UNFLAGGED);
+		markDirty(index);
+		return true;
+	}
+
+	/**
+	 * Chord on the open number (x, y): when as many of its neighbours are flagged as the
+	 * number says, open all its other CLOSE neighbours.
+	 * @param x row
+	 * @param y column
+	 * @return number of squares opened, 0 if the number is not satisfied, -1 if a flag was wrong
+	 */
+	public synchronized int chord(int x, int y) {
+
+		int index = gameMap.index(x, y);
+		byte number = gameMap.get(index);
+		if (lost || safeLeft == 0 || number <= BLANK || number >= MINE)
+			return 0;
+		byte[] game = gameMap.cells();
+		int flagged = 0;
+		for (int d : gameMap.neighbours()) {
+			if (game[index + d] == MINE)
+				flagged++;
+		}
+		if (flagged != number)
+			return 0;
+
+		return openBatch(aroundBatch, closeAround(index), false);
+	}
+
+	/**
+	 * Start recording every square the game changes, so rollback can take the game back
+	 * here. Snapshots nest: roll back or release the last one taken first.
+	 * @return mark of this snapshot for rollback or release
+	 */
+	public synchronized int snapshot() {
+
+		snapshots++;
+		return journalSize;
+	}
+
+	/**
+	 * Undo every open, flag and unflag since the snapshot, lost included, in time
+	 * proportional to the squares changed. The counters are not rolled back, they count the
+	 * work done. The snapshot is released.
+	 * @param mark what snapshot returned
+	 */
+	public synchronized void rollback(int mark) {
+
+		byte[] game = gameMap.cells();
+		while (journalSize > mark) {
+			int entry = journal[--journalSize];
+			int index = entry >>> 2;
+			switch (entry & 3) {
+			case OPENED:
+				if (game[index] == MINE)
+					lost = false;
+				else
+					safeLeft++;
+				game[index] = CLOSE;
+				unsolvedMineCoor.add(index);
+				break;
+			case FLAGGED:
+				game[index] = CLOSE;
+				flagList.clear(index);
+				unsolvedMineCoor.add(index);
+				flags--;
+				break;
+			default:
+				game[index] = MINE;
+				flagList.set(index);
+				unsolvedMineCoor.remove(index);
+				flags++;
+				break;
+			}
+			markDirty(index);
+		}
+		if (worklistActive)
+			dropStaleWork();
+		release(mark);
+	}
+
+	/* Keep every change since the snapshot, the journal is dropped once no snapshot is open */
+	public synchronized void release(int mark) {
+
+		if (snapshots > 0)
+			snapshots--;
+		if (snapshots == 0)
+			journalSize = 0;
+	}
+
+	/* PLAYING, WON once every safe square is open, LOST once a mine was opened */
+	public synchronized State state() {
+
+		return lost ? State.LOST : safeLeft == 0 ? State.WON : State.PLAYING;
+	}
+
+	/* Mines minus flags, what the mine counter shows */
+	public synchronized int remainingMines() {
+
+		return getMinesUnflagged();
+	}
+
+	/* Square (x, y) as the player sees it: CLOSE, 0-8 or MINE for a flag */
+	public synchronized byte square(int x, int y) {
+
+		return gameMap.get(x, y);
+	}
+
+	public synchronized int rows() {
+
+		return gameMap.rows();
+	}
+
+	public synchronized int cols() {
+
+		return gameMap.cols();
+	}
+
+	/* Let solver play the game, no other move gets in between */
+	public synchronized void solve(Solver solver) {
+
+		solver.solve(this);
+	}
+
+	/**
+	 * Anytime solve: play reduceMine until the game ends or the budget runs out. The cheap
+	 * rules run first and the frontier enumeration only with what is left, so the moves
+	 * found so far are played when it stops. With an unlimited budget this plays the same
+	 * game as solve(Solver.HEURISTIC).
+	 * @param budget time and operation limit, armed here
+	 * @return how far it got
+	 */
+	public synchronized AnytimeResult solveWithin(SolveBudget budget) {
+
+		long start = System.nanoTime();
+		budget.arm();
+		this.budget = budget;
+		budgetGuess = -1;
+		try {
+			reduce();
+		} finally {
+			this.budget = null;
+		}
+		State state = state();
+		long squares = (long) gameMap.rows() * gameMap.cols();
+		return new AnytimeResult(state, state != State.PLAYING,
+				(double) (squares - unsolvedMineCoor.size()) / squares,
+				state == State.PLAYING ? budgetGuess : -1, budget.ops(), System.nanoTime() - start);
+	}
+
+    /* Close every square of the mine map, then open all square=0 */
+    public synchronized Board createGameMap(Board mineMap)
+    {
+        return openBlanks(mineMap, mineMap.newLayer(Board.CLOSE));
+    }
+
+    /* Open all square=0 of an all CLOSE game layer */
+    private Board openBlanks(Board mineMap, Board gameMap)
+    {
+        long start = System.nanoTime();
+        byte[] mines = mineMap.cells();
+
+        for (int i = 0; i < mineMap.rows(); i++)
+        {
+            int base = mineMap.index(i, 0);
+            for (int j = 0; j < mineMap.cols(); j++)
+            {
+                if (mines[base + j] == BLANK)
+                    floodOpened += openSquare(base + j, mineMap, gameMap);
+            }
+        }
+
+        createNanos = System.nanoTime() - start;
+        return gameMap;
+    }
+    
+    /**
+     * Open a square in the map. If the square is a blank, it will open up neighboring squares.
+     * @param x row
+     * @param y column
+     * @return if return true, it is not a mine. If it is false, you open up a mine!
+     */
+    boolean openSquare(int x, int y){
+    	
+    	int opened = openSquare(gameMap.index(x, y), mineMap, gameMap);
+    	if (opened > 0)
+    		floodOpened += opened;
+    	return opened >= 0;
+    }
+
+    /**
+     * Open a square and flood fill the blank region around it. The fill is iterative: a blank
+     * square is opened when it is pushed on the frontier stack, so every square is visited once
+     * and the stack is reused between calls.
+     * @param index flat index of the square
+     * @return number of squares opened, 0 if it was already open, -1 if you open up a mine!
+     */
+    private int openSquare(int index, Board mineMap, Board gameMap){
+    	
+    	byte[] game = gameMap.cells();
+    	byte[] mines = mineMap.cells();
+
+    	if (game[index] != CLOSE){
+    		//the square already open. Do nothing
+    		return 0;
+    	}
+
+    	//open the square
+    	game[index] = mines[index];
+    	onOpen(index, gameMap);
+    	if (game[index] == MINE){
+    		//you open up a mine!!!
+                if(!noDebugMsg)
+                    System.out.println("Open mine - lose");
+    		return -1;
+    	}
+    	if (game[index] != BLANK){
+    		//continue the game
+    		return 1;
+    	}
+
+    	//open the neighboring squares of every blank, the guard ring is never CLOSE
+    	int[] around = gameMap.neighbours();
+    	int opened = 1;
+    	int top = 0;
+    	frontier[top++] = index;
+    	while (top > 0){
+    		int cell = frontier[--top];
+    		for (int d : around){
+    			int next = cell + d;
+    			if (game[next] != CLOSE)
+    				continue;
+    			game[next] = mines[next];
+    			onOpen(next, gameMap);
+    			opened++;
+    			if (game[next] == BLANK){
+    				if (top == frontier.length)
+    					frontier = Arrays.copyOf(frontier, top * 2);
+    				frontier[top++] = next;
+    			}
+    		}
+    	}
+    	
+    	return opened;
+    }
+
+    /* Called for every square openSquare opens */
+    private void onOpen(int index, Board gameMap)
+    {
+        if (gameMap == this.gameMap)
+        {
+            if (gameMap.get(index) == MINE)
+                lost = true;
+            else
+                safeLeft--;
+            if (unsolvedMineCoor != null)
+            {
+                unsolvedMineCoor.remove(index);
+            }
+            record(index, OPENED);
+            markDirty(index);
+        }
+    }
+    
+    
+    public synchronized void printGameMap() {
+        if (!noDebugMsg)
+        {
+    		System.out.println("GAME MAP");
+    		printMap(gameMap);
+    		System.out.println();
+        }
+    }
+    
+    public void printMap(Board mineMap) {
+    	
+    		for (int i = 0; i < mineMap.rows(); i++) {
+            for (int j = 0; j < mineMap.cols(); j++) {
+                System.out.print(mineMap.get(i, j) + "\t");
+            }
+            System.out.println();
+        }
+    }
+    
+    public CellBits getAllMineLocation(Board mineMap) {
+    	
+    	    CellBits mineList = new CellBits(mineMap.capacity());
+    	    addMines(mineMap, mineList);
+    	    return mineList;
+    }
+
+    /* Set the bit of every mine of mineMap in mineList */
+    private void addMines(Board mineMap, CellBits mineList) {
+    	
+    	    byte[] mines = mineMap.cells();
+		for (int i = 0; i < mines.length; i++) {
+			if (mines[i] == MINE) {
+				mineList.set(i);
+			}
+		}
+    }
+
+    /* Start a fresh mine ledger for mineMap, nothing flagged yet */
+    private void setMineList(Board mineMap) {
+    	
+    	    mineList = getAllMineLocation(mineMap);
+    	    flagList = new CellBits(mineMap.capacity());
+    	    mineLeft = mineList.cardinality();
+    	    mineTotal = mineLeft;
+    	    flags = 0;
+    }
+    
+    
+    /**
+     * Based on the tagMine, try to solve the array by checking potential mine only.
+     * Only numbered squares next to something that changed are re-checked: every open or
+     * flag puts its numbered neighbours on the worklist, and the solver guesses the square
+     * least likely to be a mine only once no rule deduces anything.
+     */
+    public synchronized void reduceMine()
+    {
+        reduce();
+    }
+
+    private void reduce()
+    {
+        startWorklist();
+        try
+        {
+            reduceRounds();
+        }
+        finally
+        {
+            worklistActive = false;
+        }
+    }
+
+    /* Deduce until stuck, then guess, until no CLOSE square is left or a guess was a mine */
+    private void reduceRounds()
+    {
+        int k = 0;
+        listener.round(k);
+        roundCount++;
+
+        while (unsolvedMineCoor.size() > 0)
+        {
+            if (!drainWorklist() || outOfBudget())
+            {
+                return;
+            }
+
+            if(unsolvedMineCoor.size() == 0)
+            {
+                // if all CLOSE solved, exit from game
+                break;
+            }
+
+            /* Single squares are stuck, compare overlapping pairs before guessing */
+            int pairs = reducePairs();
+            if (pairs < 0 || outOfBudget())
+            {
+                return;
+            }
+            if (pairs > 0)
+            {
+                continue;
+            }
+
+            /* Enumerate the frontier, open or flag what it proves, else guess the safest square */
+            int index = reduceFrontier();
+            if (index == -2)
+            {
+                return;
+            }
+            if (index == -1)
+            {
+                continue;
+            }
+            if (budget != null && !budget.spend(1))
+            {
+                // out of time with the next guess known, leave it to the caller
+                budgetGuess = index;
+                return;
+            }
+
+            /* If no imporvement seen, poke the guess */
+            if (!noDebugMsg)
+            {
+                System.out.println("No improvement observed, end game @ round "+k);
+            }
+            k++;
+
+            // open the guessed square
+            if (!openGuess(index))
+            {
+                return;
+            }
+            listener.round(k);
+            roundCount++;
+        }
+    }
+
+    /* True if solveWithin is running and its budget is used up */
+    private boolean outOfBudget()
+    {
+        return budget != null && budget.exhausted();
+    }
+
+    /**
+     * Open a square no rule proved safe, counted as a guess.
+     * @param index flat index of a CLOSE square
+     * @return false if it was a mine
+     */
+    public synchronized boolean guess(int index)
+    {
+        return openGuess(index);
+    }
+
+    private boolean openGuess(int index)
+    {
+        guessCount++;
+        listener.guessed(index);
+        if (!noDebugMsg)
+        {
+            System.out.println("Want to poke");
+            printGameMap();
+            System.out.println("Poke index "+index+" @ x"+gameMap.row(index)+" y:"+gameMap.col(index));
+        }
+        int opened = OpenUnflagMine(index);
+        if (opened < 0)
+        {
+            return false;
+        }
+        floodOpened += opened - 1;
+        return true;
+    }
+
+    /* Put every numbered square that touches a CLOSE square on the worklist */
+    private void startWorklist()
+    {
+        if (worklistQueued == null || worklistQueued.length != gameMap.capacity())
+            worklistQueued = new boolean[gameMap.capacity()];
+        else
+            Arrays.fill(worklistQueued, false);
+        worklistSize = 0;
+        worklistActive = true;
+        for (int i=0;i<unsolvedMineCoor.size();i++)
+        {
+            markDirty(unsolvedMineCoor.get(i));
+        }
+    }
+
+    /* After a rollback inside reduceMine: drop queued squares the rollback closed again */
+    private void dropStaleWork()
+    {
+        byte[] game = gameMap.cells();
+        int kept = 0;
+        for (int i = 0; i < worklistSize; i++)
+        {
+            int cell = worklist[i];
+            if (game[cell] > BLANK && game[cell] < MINE)
+                worklist[kept++] = cell;
+            else
+                worklistQueued[cell] = false;
+        }
+        worklistSize = kept;
+    }
+
+    /* Square at index was opened or flagged, re-check the numbered squares around it */
+    private void markDirty(int index)
+    {
+        if (!worklistActive)
+        {
+            return;
+        }
+        byte[] game = gameMap.cells();
+        queueNumber(index, game);
+        for (int d : gameMap.neighbours())
+        {
+            queueNumber(index + d, game);
+        }
+    }
+
+    private void queueNumber(int index, byte[] game)
+    {
+        // a blank never touches a CLOSE square, skip it with flags, close squares and the guard ring
+        if (game[index] > BLANK && game[index] < MINE && !worklistQueued[index])
+        {
+            worklistQueued[index] = true;
+            if (worklistSize == worklist.length)
+                worklist = Arrays.copyOf(worklist, worklistSize * 2);
+            worklist[worklistSize++] = index;
+        }
+    }
+
+    /**
+     * Pairwise stage, run when the worklist is empty. For two numbered squares A and B at most
+     * 2 apart, with r the mines still missing around each: the close squares only B touches
+     * hold r(B) - r(A) more mines than those only A touches. If that difference equals the
+     * number of squares only B touches, they are all mines and the squares only A touches are
+     * all safe (this covers the subset rule and the 1-2-1 patterns). The close squares are
+     * kept as bitmasks over a 7x7 frame centred on A. The result for A only depends on the
+     * window around it, so with setPatternCache it is looked up in a PatternCache first.
+     * @return number of squares resolved, -1 if a square opened was a mine
+     */
+    private int reducePairs()
+    {
+        byte[] game = gameMap.cells();
+        int[] around = gameMap.neighbours();
+        int stride = gameMap.stride();
+        if (pairFrame == null || pairStride != stride)
+        {
+            pairStride = stride;
+            pairFrame = new int[49];
+            for (int p = 0; p < 49; p++)
+            {
+                pairFrame[p] = (p / 7 - 3) * stride + (p % 7 - 3);
+            }
+        }
+
+        // collect the numbered squares touching a close square, the empty worklist marks double as seen marks
+        int count = 0;
+        for (int i=0;i<unsolvedMineCoor.size();i++)
+        {
+            int closed = unsolvedMineCoor.get(i);
+            for (int d : around)
+            {
+                int a = closed + d;
+                if (game[a] > BLANK && game[a] < MINE && !worklistQueued[a])
+                {
+                    worklistQueued[a] = true;
+                    if (count == pairCells.length)
+                        pairCells = Arrays.copyOf(pairCells, count * 2);
+                    pairCells[count++] = a;
+                }
+            }
+        }
+        for (int i=0;i<count;i++)
+        {
+            worklistQueued[pairCells[i]] = false;
+        }
+
+        int resolved = 0;
+        for (int i=0;i<count;i++)
+        {
+            int a = pairCells[i];
+            long maskA = closedMask(a, 0, 0);
+            if (maskA == 0)
+            {
+                continue;
+            }
+            long checks = checkCount;
+            if (patternCache != null && patternCache.find(gameMap, a))
+            {
+                patternHits++;
+                pairSafe = patternCache.safe();
+                pairMine = patternCache.mine();
+            }
+            else
+            {
+                pairRule(a, maskA);
+                if (patternCache != null)
+                {
+                    patternMisses++;
+                    patternCache.put(pairSafe, pairMine);
+                }
+            }
+            if (budget != null && !budget.spend(1 + checkCount - checks))
+            {
+                break;
+            }
+
+            // mines are flagged first, then the safe squares opened
+            for (long bits = pairMine; bits != 0; bits &= bits - 1)
+            {
+                int cell = a + pairFrame[Long.numberOfTrailingZeros(bits)];
+                if (game[cell] == CLOSE)
+                {
+                    flagMine(cell);
+                    resolved++;
+                }
+            }
+            for (long bits = pairSafe; bits != 0; bits &= bits - 1)
+            {
+                int cell = a + pairFrame[Long.numberOfTrailingZeros(bits)];
+                if (game[cell] == CLOSE)
+                {
+                    if (!openSafe(cell))
+                        return -1;
+                    resolved++;
+                }
+            }
+        }
+        pairResolved += resolved;
+        return resolved;
+    }
+
+    /**
+     * Probability stage, run when the pairwise stage is stuck. See FrontierSolver: squares
+     * that are safe or mines in every valid assignment are opened or flagged here.
+     * @return -1 if squares were resolved, -2 if a square opened was a mine, otherwise the
+     * close square least likely to be a mine
+     */
+    private int reduceFrontier()
+    {
+        if (frontierSolver == null)
+        {
+            frontierSolver = new FrontierSolver(ForkJoinPool.commonPool());
+        }
+        if (budget == null)
+        {
+            frontierSolver.analyze(gameMap, unsolvedMineCoor, getMinesUnflagged());
+        }
+        else
+        {
+            frontierSolver.analyze(gameMap, unsolvedMineCoor, getMinesUnflagged(), budget.remainingOps(), budget.deadline());
+            budget.spend(frontierSolver.nodes());
+            if (frontierSolver.cut() > 0)
+            {
+                // a budget may cost deductions but never risk a wrong one, keep only the guess
+                int guess = frontierSolver.guess();
+                return guess >= 0 ? guess : unsolvedMineCoor.pick(rand);
+            }
+        }
+
+        long deduced = deducedOpened;
+        int resolved = flagBatch(frontierSolver.mines(), frontierSolver.mineCount());
+        if (openBatch(frontierSolver.safe(), frontierSolver.safeCount(), true) < 0)
+        {
+            return -2;
+        }
+        resolved += (int) (deducedOpened - deduced);
+        frontierResolved += resolved;
+        if (resolved > 0)
+        {
+            return -1;
+        }
+        int guess = frontierSolver.guess();
+        return guess >= 0 ? guess : unsolvedMineCoor.pick(rand);
+    }
+
+    /**
+     * The pairwise rule for one numbered square A, into pairSafe and pairMine: the squares of
+     * the first B that forces anything, onlyA safe and onlyB mines, both 0 if none does.
+     * @param a flat index of A
+     * @param maskA close squares around A
+     */
+    private void pairRule(int a, long maskA)
+    {
+        byte[] game = gameMap.cells();
+        int stride = gameMap.stride();
+        checkCellSurroundingInfo(a);
+        int restA = game[a] - bombAction;
+        int x = gameMap.row(a);
+        int y = gameMap.col(a);
+
+        for (int dr=-2;dr<=2;dr++)
+        {
+            if (x+dr < 0 || x+dr >= gameMap.rows())
+                continue;
+            for (int dc=-2;dc<=2;dc++)
+            {
+                if ((dr == 0 && dc == 0) || y+dc < 0 || y+dc >= gameMap.cols())
+                    continue;
+                int b = a + dr*stride + dc;
+                if (game[b] <= BLANK || game[b] >= MINE)
+                    continue;
+                long maskB = closedMask(b, dr, dc);
+                if ((maskA & maskB) == 0)
+                    continue;
+                checkCount++;
+
+                checkCellSurroundingInfo(b);
+                int restB = game[b] - bombAction;
+                long onlyA = maskA & ~maskB;
+                long onlyB = maskB & ~maskA;
+                if ((onlyA | onlyB) == 0 || restB - restA != Long.bitCount(onlyB))
+                    continue;
+
+                // onlyB are mines, onlyA are safe, A changes so the first such B is enough
+                pairSafe = onlyA;
+                pairMine = onlyB;
+                return;
+            }
+        }
+        pairSafe = 0;
+        pairMine = 0;
+    }
+
+    /* Close squares around center as bits of the 7x7 frame of pairFrame, center sits (dr, dc) from the frame middle */
+    private long closedMask(int center, int dr, int dc)
+    {
+        byte[] game = gameMap.cells();
+        int[] around = gameMap.neighbours();
+        long mask = 0;
+        for (int k = 0; k < 8; k++)
+        {
+            if (game[center + around[k]] == CLOSE)
+            {
+                mask |= 1L << ((3 + dr + AROUND_ROW[k]) * 7 + 3 + dc + AROUND_COL[k]);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Check the queued numbered squares until nothing is left to check.
+     * @return false if a square opened during the game was a mine
+     */
+    private boolean drainWorklist()
+    {
+        byte[] game = gameMap.cells();
+
+        while (worklistSize > 0)
+        {
+            if (budget != null && !budget.spend(1))
+            {
+                break;
+            }
+            int cell = worklist[--worklistSize];
+            worklistQueued[cell] = false;
+
+            checkCellSurroundingInfo(cell);
+            checkCount++;
+            if (unSureMine == 0)
+            {
+                continue;
+            }
+
+            int bombCount = game[cell];
+            if ((bombCount-bombAction) == 0)
+            {
+                // Confirm not bomb, open all close squares around
+                if (openBatch(aroundBatch, closeAround(cell), true) < 0)
+                {
+                    return false;
+                }
+            }
+            else if (unSureMine == (bombCount-bombAction))
+            {
+                // Confirm is bomb, tag all close squares around
+                flagBatch(aroundBatch, closeAround(cell));
+            }
+        }
+        return true;
+    }
+
+    void checkOnMine(int index)
+    {
+        byte[] game = gameMap.cells();
+
+        // check from the top left to top right, then loop for all until -1 set to 9 or loop end
+        for (int d : gameMap.neighbours())
+        {
+            int a = index + d;
+            int bombCount = game[a];
+                
+                // only an opened number says something, skip flags, close squares and the guard ring
+                if (bombCount >= BLANK && bombCount < MINE)
+                {
+                    if (game[index] == CLOSE)
+                {
+                    /* Check on surrounding info of target cell */
+                    checkCellSurroundingInfo(a);
+                    checkCount++;
+                    if (!noDebugMsg)
+                    {
+                        System.out.println("a:"+gameMap.row(a)+" b:"+gameMap.col(a)+" bomb:"+bombCount + " Mine: "+bombAction + " UnsureMine:" +unSureMine);
+                    }
+
+                    if((bombCount-bombAction)==0 && unSureMine >= 0)
+                    {
+                        // Confirm not bomb, open mine
+                        if(!openSafe(index))
+                        {
+                            return;
+                        }
+                        else
+                        {
+                            if(!noDebugMsg)
+                            {
+                                System.out.println("Successfuly open up right");
+                            }
+                        }
+                        printGameMap();
+                    }
+                    else if(unSureMine == (bombCount-bombAction))
+                    {
+                        // Confirm is bomb, tag as bomb
+                        if (!noDebugMsg)
+                        {
+                            System.out.println("Set mine @ "+gameMap.col(index)+" "+gameMap.row(index));
+                            System.out.println("a:"+gameMap.row(a)+" b:"+gameMap.col(a)+" bomb:"+bombCount + " Mine: "+bombAction + " UnsureMine:" +unSureMine);
+                        }
+                        flagMine(index);
+                        printGameMap();
+                    }
+                    else
+                    {
+                        // can't determine, do nothing and wait for next loop
+                        if (!noDebugMsg)
+                        {
+                            System.out.println("Do nothing - cant determine");
+                        }
+                    }
+                }
+                }
+        }
+    }
+    
+    void checkCellSurroundingInfo(int index)
+    {
+        byte[] game = gameMap.cells();
+        int countMine = 0;
+        int countFlag = 0;
+ 
+        for (int d : gameMap.neighbours())
+        {
+            byte cell = game[index + d];
+            if (cell == MINE)
+            {
+                countMine += 1;
+            }
+            else if (cell == CLOSE)
+            {
+                countFlag += 1;
+            }
+        }
+ 
+        // Update the per-game variables for the counting event
+        unSureMine = countFlag;
+        bombAction = countMine;
+    }
+
+    /* Open a square the solver proved safe, the rest of its flood fill counts as flood opened */
+    public synchronized boolean openDeduced(int index)
+    {
+        return openSafe(index);
+    }
+
+    private boolean openSafe(int index)
+    {
+        int opened = OpenUnflagMine(index);
+        if (opened < 0)
+        {
+            return false;
+        }
+        if (opened > 0)
+        {
+            deducedOpened++;
+            floodOpened += opened - 1;
+        }
+        return true;
+    }
+
+    /**
+     * Open a batch of squares the solver proved safe in one pass. Squares the flood fill of an
+     * earlier square already opened are skipped, and the flood stack is shared.
+     * @param squares flat indexes
+     * @param count squares[0..count) are opened
+     * @return number of squares opened with their flood fills, -1 if one was a mine (the
+     * squares after it stay closed)
+     */
+    public synchronized int openSquares(int[] squares, int count)
+    {
+        return openBatch(squares, count, true);
+    }
+
+    /**
+     * Flag a batch of squares the solver proved to be mines.
+     * @param squares flat indexes, those not CLOSE are skipped
+     * @param count squares[0..count) are flagged
+     * @return number of squares flagged
+     */
+    public synchronized int flagSquares(int[] squares, int count)
+    {
+        return flagBatch(squares, count);
+    }
+
+    private int flagBatch(int[] squares, int count)
+    {
+        int flagged = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (gameMap.get(squares[i]) == CLOSE)
+            {
+                flagMine(squares[i]);
+                flagged++;
+            }
+        }
+        return flagged;
+    }
+
+    /* Open squares[0..count), the ones opened directly count as deduced or, for a player move, as flood opened */
+    private int openBatch(int[] squares, int count, boolean deduced)
+    {
+        byte[] game = gameMap.cells();
+        int total = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int index = squares[i];
+            if (game[index] != CLOSE)
+            {
+                continue;
+            }
+            int opened = OpenUnflagMine(index);
+            if (opened < 0)
+            {
+                return -1;
+            }
+            if (deduced)
+            {
+                deducedOpened++;
+                floodOpened += opened - 1;
+            }
+            else
+            {
+                floodOpened += opened;
+            }
+            total += opened;
+        }
+        return total;
+    }
+
+    /* Collect the CLOSE neighbours of index into aroundBatch, return how many */
+    private int closeAround(int index)
+    {
+        byte[] game = gameMap.cells();
+        int count = 0;
+        for (int d : gameMap.neighbours())
+        {
+            if (game[index + d] == CLOSE)
+                aroundBatch[count++] = index + d;
+        }
+        return count;
+    }
+
+    /* return number of squares opened, -1 for a mine */
+    private int OpenUnflagMine(int index)
+    {
+        int opened = openSquare(index, mineMap, gameMap);
+        if (opened < 0)
+        {
+            if (!noDebugMsg)
+                System.out.println("Fail to open during game");
+            return opened;
+        }
+        if (opened > 0)
+        {
+            listener.opened(index, opened);
+        }
+        // every square the fill opened already left the close set through onOpen
+        return opened;
+    }
+
+    /* Flag the square at a flat index of the game map, nothing happens if it is not CLOSE */
+    public synchronized void flagSquare(int index)
+    {
+        flagMine(index);
+    }
+
+    private void flagMine(int index)
+    {
+        if (unsolvedMineCoor.remove(index))
+        {
+            gameMap.set(index, Board.MINE);
+            flagList.set(index);
+            flags++;
+            flagCount++;
+            record(index, FLAGGED);
+            markDirty(index);
+            listener.flagged(index);
+        }
+    }
+
+    /* Journal a change to the square at index while a snapshot is open */
+    private void record(int index, int kind)
+    {
+        if (snapshots > 0)
+        {
+            if (journalSize == journal.length)
+                journal = Arrays.copyOf(journal, journalSize * 2);
+            journal[journalSize++] = index << 2 | kind;
+        }
+    }
+
+    /* Put every CLOSE square of the game map into the close set */
+    void fillCloseSquares()
+    {
+        if (unsolvedMineCoor == null)
+        {
+            unsolvedMineCoor = new CellSet(gameMap.capacity());
+        }
+        for(int i=0;i<gameMap.rows();i++)
+        {
+            int base = gameMap.index(i, 0);
+            for (int j=0;j<gameMap.cols();j++)
+            {
+                if (gameMap.get(base + j) == CLOSE)
+                {
+                    unsolvedMineCoor.add(base + j);
+                }
+            }
+        }
+    }
+
+    /* return number of guesses made while solving */
+    public synchronized int getGuessCount()
+    {
+        return guessCount;
+    }
+
+    /* set false to see debug msg, the default true skips them */
+    public synchronized void setNoDebugMsg(boolean noDebugMsg)
+    {
+        this.noDebugMsg = noDebugMsg;
+    }
+
+    /* A copy of the game layer the solver works on, see Board */
+    public synchronized Board getGameMap()
+    {
+        return gameMap.copy();
+    }
+
+    /* A copy of the CLOSE squares of the game map, the solver stages inside the package read the live set */
+    public synchronized CellSet getCloseSquares()
+    {
+        return unsolvedMineCoor.copy();
+    }
+
+    /* Mines on the board not flagged yet, what a player sees on the mine counter */
+    public synchronized int getMinesUnflagged()
+    {
+        return mineTotal - flags;
+    }
+
+    /**
+     * Look the pairwise rule up by local window before running it, see PatternCache. The
+     * table takes 40 << bits bytes, 650 KB at 14, and stays with the game from board to
+     * board, so it only pays on a game reused for many boards whose pairwise stage is busy.
+     * @param bits the table has 2^bits slots, 0 for no cache (the default)
+     */
+    public synchronized void setPatternCache(int bits)
+    {
+        patternCache = bits > 0 ? new PatternCache(bits) : null;
+    }
+
+    /* Receive the opens, flags, guesses and rounds of the solver, SolverListener.NONE to stop */
+    public synchronized void setListener(SolverListener listener)
+    {
+        this.listener = listener;
+    }
+}
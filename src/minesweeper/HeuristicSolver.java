@@ -0,0 +1,23 @@
+package minesweeper;
+
+/******************************************************************************
+ *  The default backend, Game.reduceMine: single square rules on a
+ *  worklist, then the pairwise rule, then frontier enumeration with
+ *  probability-guided guesses.
+ *
+ ******************************************************************************/
+
+public class HeuristicSolver implements Solver {
+
+    @Override
+    public void solve(Game game)
+    {
+        game.reduceMine();
+    }
+
+    @Override
+    public String name()
+    {
+        return "heuristic";
+    }
+}
@@ -0,0 +1,645 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/******************************************************************************
+ *  Solver backend that treats every number as a linear equation over the
+ *  0/1 mine variables of its close squares and reduces the system of each
+ *  frontier component to reduced row echelon form by Gauss-Jordan
+ *  elimination.
+ *
+ *  A reduced row sum(a_i x_i) = b with x_i in {0, 1} forces all its
+ *  variables when b is the smallest or the largest value the left side can
+ *  take: at b = sum of the negative a_i the positive variables are safe and
+ *  the negative ones mines, at b = sum of the positive a_i the other way
+ *  round. This finds what the single square and pairwise rules find and
+ *  more, in bulk, without enumerating assignments, so it stays polynomial
+ *  on long frontiers.
+ *
+ *  Rows are sparse and integer. A row operation cross multiplies the two
+ *  rows and divides the result by the gcd of its coefficients, so the
+ *  reduction is exact and the forcing test compares integers. A row whose
+ *  coefficients would grow past COEFFICIENT_MAX is dropped, which only
+ *  loses deductions, every row left is still implied by the numbers.
+ *
+ *  The frontier is kept up to date as the game goes on instead of being
+ *  rebuilt every step: the squares a step opened or flagged are found by
+ *  walking out from its moves, and the numbers around them are marked
+ *  changed. Only components with a changed number are reduced again. The
+ *  numbers of a component are taken breadth first from a changed number
+ *  until their squares would pass MAX_COLUMNS, so a component of any width
+ *  and shape is reduced in windows of numbers that lie next to each other
+ *  on the board, every number whole in its window. Once the close squares
+ *  are few, the mine counter is added as one more equation over all of
+ *  them. When nothing is forced the square with the lowest local mine ratio
+ *  is guessed.
+ *
+ ******************************************************************************/
+
+public class LinearSolver implements Solver {
+
+    public static final int MAX_COLUMNS = 128;
+    /* add the mine counter row once at most this many squares are close */
+    public static final int COUNT_ROW_MAX = 64;
+    /* a row with a larger coefficient is dropped, keeps every product and sum in a long */
+    static final long COEFFICIENT_MAX = 1L << 40;
+
+    @Override
+    public void solve(Game game)
+    {
+        new Run(game).play();
+    }
+
+    @Override
+    public String name()
+    {
+        return "linear";
+    }
+
+    /* The incremental frontier and scratch of one solve, so the solver itself stays stateless */
+    private static final class Run
+    {
+        private final Game game;
+        private final byte[] cells;
+        private final int[] around;
+        private final CellSet closed;
+        /* CLOSE as of the last step, compared with the board to find what a step changed */
+        private final boolean[] wasClose;
+        /* numbers with a close neighbour, and those of them changed since they were last reduced */
+        private final CellSet active;
+        private final CellSet changed;
+        private final Moves moves = new Moves();
+
+        /* breadth first window: numbers in order, their squares, and the marks of both */
+        private final boolean[] inWindow;
+        private int[] windowNumbers = new int[64];
+        private int windowSize;
+        private int[] windowCells = new int[MAX_COLUMNS + 8];
+        private int windowCellCount;
+        private int[] walk = new int[64];
+
+        /* pickGuess: worst ratio per frontier square, -1 off the frontier, and the squares set */
+        private final double[] worst;
+        private int[] risky = new int[64];
+
+        Run(Game game)
+        {
+            this.game = game;
+            Board gameMap = game.gameMap;
+            cells = gameMap.cells();
+            around = gameMap.neighbours();
+            closed = game.unsolvedMineCoor;
+            wasClose = new boolean[cells.length];
+            active = new CellSet(cells.length);
+            changed = new CellSet(cells.length);
+            inWindow = new boolean[cells.length];
+            worst = new double[cells.length];
+            Arrays.fill(worst, -1);
+            for (int i = 0; i < closed.size(); i++)
+            {
+                wasClose[closed.get(i)] = true;
+            }
+            for (int i = 0; i < closed.size(); i++)
+            {
+                for (int d : around)
+                {
+                    touch(closed.get(i) + d);
+                }
+            }
+        }
+
+        void play()
+        {
+            while (closed.size() > 0)
+            {
+                int minesLeft = game.getMinesUnflagged();
+                moves.clear();
+
+                if (minesLeft == 0 || minesLeft == closed.size())
+                {
+                    // the mine counter alone decides every close square
+                    for (int i = 0; i < closed.size(); i++)
+                        moves.add(minesLeft == 0, closed.get(i));
+                }
+                else if (closed.size() <= COUNT_ROW_MAX)
+                {
+                    windowAll();
+                    reduceWindow(minesLeft);
+                }
+                else
+                {
+                    reduceChanged();
+                }
+
+                // flag first so the opened squares' numbers already see the flags
+                int flagged = game.flagSquares(moves.mines, moves.mineCount);
+                int opened = game.openSquares(moves.safe, moves.safeCount);
+                if (opened < 0)
+                {
+                    return;
+                }
+                update(moves.mines, moves.mineCount);
+                update(moves.safe, moves.safeCount);
+                if (flagged + opened > 0)
+                {
+                    continue;
+                }
+
+                int guess = pickGuess(minesLeft);
+                if (!game.guess(guess))
+                {
+                    return;
+                }
+                moves.clear();
+                moves.add(true, guess);
+                update(moves.safe, moves.safeCount);
+            }
+        }
+
+        /* Reduce a window around every changed number until no changed number is left */
+        private void reduceChanged()
+        {
+            while (changed.size() > 0)
+            {
+                int settled = windowFrom(changed.get(changed.size() - 1));
+                reduceWindow(-1);
+                // the numbers whose neighbour numbers were all in the window are done, the others get their own
+                for (int n = 0; n < windowSize; n++)
+                {
+                    if (n < settled)
+                        changed.remove(windowNumbers[n]);
+                    inWindow[windowNumbers[n]] = false;
+                }
+                for (int k = 0; k < windowCellCount; k++)
+                {
+                    inWindow[windowCells[k]] = false;
+                }
+            }
+        }
+
+        /**
+         * Collect the numbers reached breadth first from start over shared close squares, until
+         * the next number would take the window past MAX_COLUMNS squares.
+         * @return how many of the window numbers, in order, have every number that shares a
+         * square with them in the window, at least 1; all of them if the window holds the whole
+         * component of start
+         */
+        private int windowFrom(int start)
+        {
+            windowSize = 0;
+            windowCellCount = 0;
+            addNumber(start);
+            for (int n = 0; n < windowSize; n++)
+            {
+                int number = windowNumbers[n];
+                for (int d : around)
+                {
+                    int cell = number + d;
+                    if (cells[cell] != Board.CLOSE)
+                        continue;
+                    for (int e : around)
+                    {
+                        int next = cell + e;
+                        if (!inWindow[next] && active.contains(next))
+                        {
+                            if (windowCellCount + newSquares(next) > MAX_COLUMNS)
+                                return Math.max(1, n);
+                            addNumber(next);
+                        }
+                    }
+                }
+            }
+            return windowSize;
+        }
+
+        /* Every active number and every close square, for the mine counter row */
+        private void windowAll()
+        {
+            windowSize = 0;
+            windowCellCount = 0;
+            for (int i = 0; i < active.size(); i++)
+            {
+                addNumber(active.get(i));
+            }
+            for (int i = 0; i < closed.size(); i++)
+            {
+                int cell = closed.get(i);
+                if (!inWindow[cell])
+                {
+                    inWindow[cell] = true;
+                    windowCells[windowCellCount++] = cell;
+                }
+            }
+            for (int n = 0; n < windowSize; n++)
+            {
+                inWindow[windowNumbers[n]] = false;
+            }
+            for (int k = 0; k < windowCellCount; k++)
+            {
+                inWindow[windowCells[k]] = false;
+            }
+            changed.clear();
+        }
+
+        /* Close squares of number not in the window yet */
+        private int newSquares(int number)
+        {
+            int count = 0;
+            for (int d : around)
+            {
+                if (cells[number + d] == Board.CLOSE && !inWindow[number + d])
+                    count++;
+            }
+            return count;
+        }
+
+        private void addNumber(int number)
+        {
+            if (windowSize == windowNumbers.length)
+                windowNumbers = Arrays.copyOf(windowNumbers, windowSize * 2);
+            windowNumbers[windowSize++] = number;
+            inWindow[number] = true;
+            for (int d : around)
+            {
+                int cell = number + d;
+                if (cells[cell] == Board.CLOSE && !inWindow[cell])
+                {
+                    if (windowCellCount == windowCells.length)
+                        windowCells = Arrays.copyOf(windowCells, windowCellCount * 2);
+                    inWindow[cell] = true;
+                    windowCells[windowCellCount++] = cell;
+                }
+            }
+        }
+
+        /* Reduce the numbers of the window over its squares, plus the mine counter row if total >= 0 */
+        private void reduceWindow(int total)
+        {
+            int[] columns = Arrays.copyOf(windowCells, windowCellCount);
+            Arrays.sort(columns);
+            Row[] rows = new Row[windowSize + (total >= 0 ? 1 : 0)];
+            for (int n = 0; n < windowSize; n++)
+            {
+                rows[n] = numberRow(windowNumbers[n], columns);
+            }
+            if (total >= 0)
+            {
+                int[] all = new int[columns.length];
+                long[] ones = new long[columns.length];
+                for (int k = 0; k < all.length; k++)
+                {
+                    all[k] = k;
+                    ones[k] = 1;
+                }
+                rows[windowSize] = new Row(all, ones, all.length, total);
+            }
+            reduce(rows, columns, moves);
+        }
+
+        /* The equation of number: its close squares, as columns, sum to its mines left */
+        private Row numberRow(int number, int[] columns)
+        {
+            int rest = cells[number];
+            int[] at = new int[8];
+            long[] ones = new long[8];
+            int size = 0;
+            for (int d : around)
+            {
+                byte v = cells[number + d];
+                if (v == Board.MINE)
+                    rest--;
+                else if (v == Board.CLOSE)
+                {
+                    at[size] = Arrays.binarySearch(columns, number + d);
+                    ones[size++] = 1;
+                }
+            }
+            Arrays.sort(at, 0, size);
+            return new Row(at, ones, size, rest);
+        }
+
+        /**
+         * Squares changed since the last step: walk out from the moves over squares that were
+         * close and are not any more, which finds every flood fill, and update the numbers
+         * around them.
+         */
+        private void update(int[] squares, int count)
+        {
+            int size = 0;
+            for (int i = 0; i < count; i++)
+            {
+                int cell = squares[i];
+                if (wasClose[cell] && cells[cell] != Board.CLOSE)
+                {
+                    wasClose[cell] = false;
+                    if (size == walk.length)
+                        walk = Arrays.copyOf(walk, size * 2);
+                    walk[size++] = cell;
+                }
+            }
+            while (size > 0)
+            {
+                int cell = walk[--size];
+                touch(cell);
+                for (int d : around)
+                {
+                    int next = cell + d;
+                    touch(next);
+                    if (wasClose[next] && cells[next] != Board.CLOSE)
+                    {
+                        wasClose[next] = false;
+                        if (size == walk.length)
+                            walk = Arrays.copyOf(walk, size * 2);
+                        walk[size++] = next;
+                    }
+                }
+            }
+        }
+
+        /* Something around square changed: a number with close neighbours is active and changed, otherwise neither */
+        private void touch(int square)
+        {
+            if (!Frontier.isNumber(cells[square]))
+                return;
+            boolean open = false;
+            for (int d : around)
+            {
+                if (cells[square + d] == Board.CLOSE)
+                {
+                    open = true;
+                    break;
+                }
+            }
+            if (open)
+            {
+                active.add(square);
+                changed.add(square);
+            }
+            else
+            {
+                active.remove(square);
+                changed.remove(square);
+            }
+        }
+
+        /* Square with the lowest local mine ratio, an interior square counted at the average density */
+        private int pickGuess(int minesLeft)
+        {
+            // a frontier square is as risky as the worst number around it
+            int frontier = 0;
+            for (int i = 0; i < active.size(); i++)
+            {
+                int number = active.get(i);
+                int rest = cells[number];
+                int size = 0;
+                for (int d : around)
+                {
+                    byte v = cells[number + d];
+                    if (v == Board.MINE)
+                        rest--;
+                    else if (v == Board.CLOSE)
+                        size++;
+                }
+                double ratio = (double) rest / size;
+                for (int d : around)
+                {
+                    int cell = number + d;
+                    if (cells[cell] != Board.CLOSE)
+                        continue;
+                    if (worst[cell] < 0)
+                    {
+                        if (frontier == risky.length)
+                            risky = Arrays.copyOf(risky, frontier * 2);
+                        risky[frontier++] = cell;
+                    }
+                    worst[cell] = Math.max(worst[cell], ratio);
+                }
+            }
+
+            int guess = -1;
+            double lowest = 2.0;
+            if (frontier < closed.size())
+            {
+                for (int i = 0; guess < 0; i++)
+                {
+                    if (worst[closed.get(i)] < 0)
+                        guess = closed.get(i);
+                }
+                lowest = (double) minesLeft / closed.size();
+            }
+            for (int k = 0; k < frontier; k++)
+            {
+                int cell = risky[k];
+                if (worst[cell] < lowest)
+                {
+                    lowest = worst[cell];
+                    guess = cell;
+                }
+                worst[cell] = -1;
+            }
+            return guess;
+        }
+    }
+
+    /**
+     * Reduce rows over columns to reduced row echelon form and collect the squares forced by
+     * any row at its lowest or highest possible sum.
+     * @param rows equations, null entries are skipped
+     * @param columns flat index of each column
+     * @param moves receives the forced squares
+     */
+    static void reduce(Row[] rows, int[] columns, Moves moves)
+    {
+        int count = 0;
+        for (Row row : rows)
+        {
+            if (row != null && row.size > 0)
+                rows[count++] = row;
+        }
+
+        // Gauss-Jordan: pivot on the shortest row of the lowest leading column, clear it from every other row
+        int pivot = 0;
+        while (pivot < count)
+        {
+            int best = pivot;
+            for (int r = pivot + 1; r < count; r++)
+            {
+                int lead = rows[r].at[0] - rows[best].at[0];
+                if (lead < 0 || lead == 0 && rows[r].size < rows[best].size)
+                    best = r;
+            }
+            int col = rows[best].at[0];
+            Row p = rows[best];
+            rows[best] = rows[pivot];
+            rows[pivot] = p;
+
+            int kept = 0;
+            for (int r = 0; r < count; r++)
+            {
+                Row row = rows[r];
+                if (r != pivot)
+                {
+                    int k = Arrays.binarySearch(row.at, 0, row.size, col);
+                    if (k >= 0)
+                        row = row.eliminate(p, row.a[k]);
+                }
+                if (r == pivot)
+                    pivot = kept;
+                // a dropped or emptied row goes, the ones after it move up
+                if (row != null && row.size > 0)
+                    rows[kept++] = row;
+            }
+            count = kept;
+            pivot++;
+        }
+
+        for (int r = 0; r < count; r++)
+        {
+            rows[r].force(columns, moves);
+        }
+    }
+
+    /* One sparse integer equation sum(a[k] x[at[k]]) = b, at sorted, no zero a[k] */
+    static final class Row
+    {
+        final int[] at;
+        final long[] a;
+        final int size;
+        final long b;
+
+        Row(int[] at, long[] a, int size, long b)
+        {
+            this.at = at;
+            this.a = a;
+            this.size = size;
+            this.b = b;
+        }
+
+        /**
+         * This row times the pivot coefficient minus pivot times c, which clears the pivot column.
+         * @return the new row divided by its gcd, null if a coefficient grew past COEFFICIENT_MAX
+         */
+        Row eliminate(Row pivot, long c)
+        {
+            long m = pivot.a[0];
+            int[] to = new int[size + pivot.size];
+            long[] sum = new long[size + pivot.size];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            try
+            {
+                while (i < size || j < pivot.size)
+                {
+                    int col = i < size && (j >= pivot.size || at[i] <= pivot.at[j]) ? at[i] : pivot.at[j];
+                    long v = 0;
+                    if (i < size && at[i] == col)
+                        v = Math.multiplyExact(a[i++], m);
+                    if (j < pivot.size && pivot.at[j] == col)
+                        v = Math.subtractExact(v, Math.multiplyExact(pivot.a[j++], c));
+                    if (v != 0)
+                    {
+                        to[n] = col;
+                        sum[n++] = v;
+                    }
+                }
+                long rhs = Math.subtractExact(Math.multiplyExact(b, m), Math.multiplyExact(pivot.b, c));
+                return normalize(to, sum, n, rhs);
+            }
+            catch (ArithmeticException e)
+            {
+                return null;
+            }
+        }
+
+        /* Divide by the gcd of the coefficients, null if one is still past COEFFICIENT_MAX */
+        private static Row normalize(int[] at, long[] a, int size, long b)
+        {
+            long g = 0;
+            for (int k = 0; k < size; k++)
+            {
+                g = gcd(g, Math.abs(a[k]));
+            }
+            if (g > 1)
+            {
+                if (b % g != 0)
+                    return null;
+                for (int k = 0; k < size; k++)
+                {
+                    a[k] /= g;
+                }
+                b /= g;
+            }
+            for (int k = 0; k < size; k++)
+            {
+                if (Math.abs(a[k]) > COEFFICIENT_MAX)
+                    return null;
+            }
+            return new Row(at, a, size, b);
+        }
+
+        private static long gcd(long x, long y)
+        {
+            while (y != 0)
+            {
+                long t = x % y;
+                x = y;
+                y = t;
+            }
+            return x;
+        }
+
+        /* At its lowest possible sum the positive variables are safe, at its highest mines */
+        void force(int[] columns, Moves moves)
+        {
+            long low = 0;
+            long high = 0;
+            for (int k = 0; k < size; k++)
+            {
+                if (a[k] > 0)
+                    high += a[k];
+                else
+                    low += a[k];
+            }
+            boolean atLow = b == low;
+            boolean atHigh = b == high;
+            if (!atLow && !atHigh)
+                return;
+            for (int k = 0; k < size; k++)
+            {
+                moves.add(a[k] > 0 ? atLow : atHigh, columns[at[k]]);
+            }
+        }
+    }
+
+    /* Forced squares of one step */
+    static final class Moves
+    {
+        int[] safe = new int[16];
+        int safeCount;
+        int[] mines = new int[16];
+        int mineCount;
+
+        void add(boolean isSafe, int cell)
+        {
+            if (isSafe)
+            {
+                if (safeCount == safe.length)
+                    safe = Arrays.copyOf(safe, safeCount * 2);
+                safe[safeCount++] = cell;
+            }
+            else
+            {
+                if (mineCount == mines.length)
+                    mines = Arrays.copyOf(mines, mineCount * 2);
+                mines[mineCount++] = cell;
+            }
+        }
+
+        void clear()
+        {
+            safeCount = 0;
+            mineCount = 0;
+        }
+    }
+}
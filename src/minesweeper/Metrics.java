@@ -0,0 +1,153 @@
+package minesweeper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/******************************************************************************
+ *  Counters and phase timers of many games, safe to share between batch
+ *  workers.
+ *
+ *  A game counts into plain long fields while it plays and adds them here
+ *  once at the end (Minesweeper.recordTo), so the solver hot path never
+ *  touches a shared cache line. Counters are LongAdders, each phase keeps
+ *  a histogram of nanoseconds in power-of-two buckets.
+ *
+ ******************************************************************************/
+
+public class Metrics {
+
+    public enum Counter
+    {
+        GAMES, WINS,
+        /* squares opened by flood fills, the start of the game included */
+        FLOOD_OPENED,
+        /* squares the solver proved safe and opened */
+        DEDUCED_OPENED,
+        FLAGS,
+        /* squares opened or flagged by the pairwise rule */
+        PAIR_RESOLVED,
+        /* pairwise results found in the PatternCache, and computed */
+        PATTERN_HITS, PATTERN_MISSES,
+        /* squares opened or flagged by the frontier enumeration */
+        FRONTIER_RESOLVED,
+        /* guesses, on the square least likely to be a mine */
+        GUESSES,
+        /* reduceMine rounds, one more after every guess */
+        ROUNDS,
+        /* numbered squares evaluated by the solver rules */
+        CHECKS
+    }
+
+    public enum Phase
+    {
+        GENERATE, CREATE, SOLVE
+    }
+
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+
+    public Metrics()
+    {
+        for (int i = 0; i < counters.length; i++)
+        {
+            counters[i] = new LongAdder();
+        }
+        for (int i = 0; i < phases.length; i++)
+        {
+            phases[i] = new Histogram();
+        }
+    }
+
+    public void add(Counter counter, long n)
+    {
+        if (n != 0)
+        {
+            counters[counter.ordinal()].add(n);
+        }
+    }
+
+    public long get(Counter counter)
+    {
+        return counters[counter.ordinal()].sum();
+    }
+
+    public void time(Phase phase, long nanos)
+    {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    public Histogram histogram(Phase phase)
+    {
+        return phases[phase.ordinal()];
+    }
+
+    /* Multi-line summary for the end of a batch */
+    public String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Counter counter : Counter.values())
+        {
+            sb.append(String.format("%-17s %d%n", counter, get(counter)));
+        }
+        for (Phase phase : Phase.values())
+        {
+            Histogram h = histogram(phase);
+            sb.append(String.format("%-17s n=%d mean=%.1fus p50<=%.1fus p99<=%.1fus max=%.1fus%n",
+                    phase, h.count(), h.mean() / 1e3, h.percentile(0.5) / 1e3,
+                    h.percentile(0.99) / 1e3, h.max() / 1e3));
+        }
+        return sb.toString();
+    }
+
+    /* Histogram of non-negative longs, bucket b holds values in [2^(b-1), 2^b) */
+    public static class Histogram
+    {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long value)
+        {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long count()
+        {
+            return count.sum();
+        }
+
+        public double mean()
+        {
+            long n = count();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        public long max()
+        {
+            return max.get();
+        }
+
+        /* Upper bound of the bucket holding the q-quantile */
+        public long percentile(double q)
+        {
+            long n = count();
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int b = 0; b < 64; b++)
+            {
+                seen += buckets.get(b);
+                if (seen >= rank && seen > 0)
+                {
+                    return b == 0 ? 0 : Math.min(max(), (1L << b) - 1);
+                }
+            }
+            return max();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+
+/******************************************************************************
+ *  Random mine maps in the layout of Minesweeper.generateMineMap: an
+ *  (m+4)x(n+4) board whose playing grid is [2..m+1][2..n+1].
+ *
+ *  withDensity makes every square a mine with probability p, jumping from
+ *  mine to mine with geometric skips instead of drawing once per square.
+ *  withCount places exactly the given number of mines with Floyd's
+ *  sampler, which uses the board itself as the "already taken" set. Both
+ *  fill the neighbour counts with Board.countMines, each mine adding one
+ *  to its 8 neighbours.
+ *
+ *  A safe square (safeX, safeY) never gets a mine, so a first click there
+ *  can not lose. Pass -1, -1 for no safe square.
+ *
+ ******************************************************************************/
+
+public class MineGenerator {
+
+    private MineGenerator()
+    {
+    }
+
+    /**
+     * @param m row
+     * @param n columns
+     * @param p probability of mine
+     * @param rand source of randomness, one per thread or per game
+     * @param safeX row of the safe square on the board, -1 for none
+     * @param safeY column of the safe square on the board, -1 for none
+     * @return
+     */
+    public static Board withDensity(int m, int n, double p, SplittableRandom rand, int safeX, int safeY)
+    {
+        Board board = new Board(m+4, n+4);
+        fillDensity(board, p, rand, safeX, safeY);
+        return board;
+    }
+
+    /**
+     * withDensity into an existing board, so a reused game draws its next map without allocating.
+     * @param board (m+4)x(n+4) board, every square is overwritten
+     * @param p probability of mine
+     * @param rand source of randomness, one per thread or per game
+     * @param safeX row of the safe square on the board, -1 for none
+     * @param safeY column of the safe square on the board, -1 for none
+     */
+    public static void fillDensity(Board board, double p, SplittableRandom rand, int safeX, int safeY)
+    {
+        int m = board.rows() - 4;
+        int n = board.cols() - 4;
+        board.fill(Board.BLANK);
+        int total = m * n;
+        int safe = safeSquare(m, n, safeX, safeY);
+
+        if (p > 0)
+        {
+            double logq = Math.log1p(-p);
+            int k = -1;
+            while (true)
+            {
+                // number of squares until the next mine, geometric with parameter p
+                double skip = p >= 1 ? 0 : Math.floor(Math.log(1.0 - rand.nextDouble()) / logq);
+                if (k + 1 + skip >= total)
+                {
+                    break;
+                }
+                k += 1 + (int) skip;
+                if (k != safe)
+                {
+                    board.cells()[square(board, n, k)] = Board.MINE;
+                }
+            }
+        }
+
+        board.countMines();
+    }
+
+    /**
+     * @param m row
+     * @param n columns
+     * @param mines exact number of mines, capped at the number of free squares
+     * @param rand source of randomness, one per thread or per game
+     * @param safeX row of the safe square on the board, -1 for none
+     * @param safeY column of the safe square on the board, -1 for none
+     * @return
+     */
+    public static Board withCount(int m, int n, int mines, SplittableRandom rand, int safeX, int safeY)
+    {
+        Board board = new Board(m+4, n+4);
+        byte[] cells = board.cells();
+        int safe = safeSquare(m, n, safeX, safeY);
+        int total = safe < 0 ? m * n : m * n - 1;
+        mines = Math.min(mines, total);
+
+        // Floyd: for j = total-mines .. total-1 take a random t <= j, or j itself if t is taken
+        for (int j = total - mines; j < total; j++)
+        {
+            int t = square(board, n, skipSafe(rand.nextInt(j + 1), safe));
+            if (cells[t] == Board.MINE)
+            {
+                t = square(board, n, skipSafe(j, safe));
+            }
+            cells[t] = Board.MINE;
+        }
+
+        board.countMines();
+        return board;
+    }
+
+    /* Playing square number of the safe square, -1 if it is outside the playing grid */
+    private static int safeSquare(int m, int n, int safeX, int safeY)
+    {
+        if (safeX < 2 || safeY < 2 || safeX > m+1 || safeY > n+1)
+        {
+            return -1;
+        }
+        return (safeX - 2) * n + (safeY - 2);
+    }
+
+    /* Number q of the squares without the safe one, as a playing square number */
+    private static int skipSafe(int q, int safe)
+    {
+        return safe >= 0 && q >= safe ? q + 1 : q;
+    }
+
+    /* Flat board index of playing square k */
+    private static int square(Board board, int n, int k)
+    {
+        return board.index(2 + k / n, 2 + k % n);
+    }
+}
@@ -0,0 +1,334 @@
+package minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/******************************************************************************
+ *  Append-only file holding many mine maps, with an offset index in the
+ *  footer so a reader can stream the boards or seek straight to board K.
+ *
+ *  Layout, big endian:
+ *      int   magic    "MSCP"
+ *      short version  1
+ *      short flags    0, reserved
+ *      board[count]   rows, cols, mines, mine bits (as in MineMapFile)
+ *      long  offset[count]
+ *      long  index    file offset of offset[0]
+ *      int   count
+ *      int   magic    "MSCI"
+ *
+ *  Opening a Writer on an existing corpus leaves every byte of it as it
+ *  is. New boards go after the old footer, and close writes a new footer
+ *  with the offsets of the old and the new boards, so the trailer at the
+ *  end of the file always indexes the whole corpus. Boards are collected
+ *  in a batch buffer and written with one channel write per batch.
+ *
+ *  A new corpus gets an empty footer (count 0) right after the header, so
+ *  there is a complete trailer from the start. A writer that dies before
+ *  close leaves boards without a footer at the end. A Reader then walks
+ *  back to the last complete trailer and reads the corpus as it was when
+ *  that footer was written, and a Writer opened on it appends after that
+ *  footer, over the lost boards.
+ *
+ ******************************************************************************/
+
+public class MineMapCorpus {
+
+    public static final int MAGIC = 0x4D534350;
+    public static final int INDEX_MAGIC = 0x4D534349;
+    public static final short VERSION = 1;
+
+    private static final int HEADER = 8;
+    private static final int TRAILER = 16;
+
+    /* Appends boards to a corpus, add is thread safe so game workers can share one writer */
+    public static class Writer implements Closeable
+    {
+        private final FileChannel channel;
+        private final ByteBuffer batch;
+        private long[] offsets;
+        private int count;
+        private long end;
+
+        /**
+         * Create the corpus or continue an existing one.
+         * @param filename
+         * @param batchBytes size of the batch buffer
+         */
+        public Writer(String filename, int batchBytes) throws IOException
+        {
+            Path path = Paths.get(filename);
+            boolean exists = Files.exists(path) && Files.size(path) > 0;
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE);
+            batch = ByteBuffer.allocate(Math.max(batchBytes, 4096));
+
+            if (exists)
+            {
+                Reader old = new Reader(channel, filename);
+                offsets = Arrays.copyOf(old.offsets, Math.max(16, old.offsets.length * 2));
+                count = old.offsets.length;
+                end = old.end;
+            }
+            else
+            {
+                // the header and an empty footer, the first board goes after it
+                ByteBuffer head = ByteBuffer.allocate(HEADER + TRAILER);
+                head.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+                head.putLong(HEADER).putInt(0).putInt(INDEX_MAGIC).flip();
+                writeFully(head, 0);
+                channel.force(true);
+                offsets = new long[16];
+                end = HEADER + TRAILER;
+            }
+        }
+
+        public Writer(String filename) throws IOException
+        {
+            this(filename, 1 << 20);
+        }
+
+        /* Queue one board, the batch goes to disk when it is full */
+        public synchronized void add(Board mineMap) throws IOException
+        {
+            long size = MineMapFile.bodyBytes(mineMap);
+            if (size > batch.remaining())
+            {
+                flush();
+            }
+
+            if (count == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = end + batch.position();
+
+            if (size > batch.capacity())
+            {
+                // larger than a whole batch, write it on its own
+                ByteBuffer one = ByteBuffer.allocate((int) size);
+                MineMapFile.writeBody(mineMap, one);
+                one.flip();
+                writeFully(one, end);
+                end += size;
+            }
+            else
+            {
+                MineMapFile.writeBody(mineMap, batch);
+            }
+        }
+
+        /* Write the pending batch */
+        public synchronized void flush() throws IOException
+        {
+            batch.flip();
+            int size = batch.remaining();
+            writeFully(batch, end);
+            end += size;
+            batch.clear();
+        }
+
+        public synchronized int size()
+        {
+            return count;
+        }
+
+        /* Flush, then write the offset index and the trailer */
+        @Override
+        public synchronized void close() throws IOException
+        {
+            try
+            {
+                flush();
+                ByteBuffer footer = ByteBuffer.allocate(count * 8 + TRAILER);
+                for (int k = 0; k < count; k++)
+                {
+                    footer.putLong(offsets[k]);
+                }
+                footer.putLong(end).putInt(count).putInt(INDEX_MAGIC).flip();
+                writeFully(footer, end);
+                channel.truncate(end + count * 8L + TRAILER);
+                channel.force(true);
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+
+        private void writeFully(ByteBuffer buffer, long position) throws IOException
+        {
+            while (buffer.hasRemaining())
+            {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /* Reads boards of a finished corpus, get is thread safe (positional reads only) */
+    public static class Reader implements Closeable
+    {
+        private final FileChannel channel;
+        private final String name;
+        private final long[] offsets;
+        private final long index;
+        private final long end;
+
+        public Reader(String filename) throws IOException
+        {
+            this(FileChannel.open(Paths.get(filename), StandardOpenOption.READ), filename);
+        }
+
+        private Reader(FileChannel channel, String name) throws IOException
+        {
+            this.channel = channel;
+            this.name = name;
+
+            long size = channel.size();
+            if (size < HEADER + TRAILER)
+            {
+                throw new IOException(name + ": not a mine map corpus");
+            }
+            ByteBuffer head = read(0, HEADER);
+            if (head.getInt() != MAGIC)
+            {
+                throw new IOException(name + ": not a mine map corpus");
+            }
+            short version = head.getShort();
+            if (version != VERSION)
+            {
+                throw new IOException(name + ": unsupported corpus version " + version);
+            }
+
+            long found = size;
+            long[] table = footer(found);
+            if (table == null)
+            {
+                found = lastTrailer(size);
+                table = found < 0 ? null : footer(found);
+            }
+            if (table == null)
+            {
+                throw new IOException(name + ": corpus index missing, the writer was not closed");
+            }
+            end = found;
+            index = table[table.length - 1];
+            offsets = Arrays.copyOf(table, table.length - 1);
+        }
+
+        /**
+         * The footer whose trailer ends at position end, if there is a valid one.
+         * @return the offsets followed by the end of the last board, null if end is no trailer
+         */
+        private long[] footer(long end) throws IOException
+        {
+            if (end < HEADER + TRAILER)
+            {
+                return null;
+            }
+            ByteBuffer trailer = read(end - TRAILER, TRAILER);
+            long at = trailer.getLong();
+            int count = trailer.getInt();
+            if (trailer.getInt() != INDEX_MAGIC || count < 0 || at < HEADER || at + count * 8L + TRAILER != end)
+            {
+                return null;
+            }
+
+            long[] found = new long[count + 1];
+            read(at, count * 8).asLongBuffer().get(found, 0, count);
+            found[count] = at;
+            long last = HEADER - 1;
+            for (int k = 0; k < count; k++)
+            {
+                // boards start after the header and only ever move forward, old footers lie between them
+                if (found[k] <= last || found[k] >= at)
+                {
+                    return null;
+                }
+                last = found[k];
+            }
+            return found;
+        }
+
+        /* End of the last valid trailer before size, -1 if there is none */
+        private long lastTrailer(long size) throws IOException
+        {
+            int chunk = 1 << 16;
+            long to = size;
+            while (to >= HEADER + TRAILER)
+            {
+                long from = Math.max(HEADER, to - chunk);
+                ByteBuffer buffer = read(from, (int) (to - from));
+                for (int i = buffer.limit() - 4; i >= 0; i--)
+                {
+                    if (buffer.getInt(i) == INDEX_MAGIC && footer(from + i + 4) != null)
+                    {
+                        return from + i + 4;
+                    }
+                }
+                if (from == HEADER)
+                {
+                    break;
+                }
+                // keep 3 bytes so a magic across the chunk border is seen
+                to = from + 3;
+            }
+            return -1;
+        }
+
+        /* Number of boards */
+        public int size()
+        {
+            return offsets.length;
+        }
+
+        /* Board k, read with one positional read, the span of the last board before an old footer takes the footer along */
+        public Board get(int k) throws IOException
+        {
+            long from = offsets[k];
+            long to = k + 1 < offsets.length ? offsets[k + 1] : index;
+            return MineMapFile.readBody(read(from, (int) (to - from)), name + "#" + k);
+        }
+
+        /* Stream boards [from, to) to visitor in file order */
+        public void forEach(int from, int to, Visitor visitor) throws IOException
+        {
+            for (int k = from; k < to; k++)
+            {
+                visitor.visit(k, get(k));
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+
+        private ByteBuffer read(long position, int size) throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                {
+                    throw new IOException(name + ": unexpected end of corpus");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    public interface Visitor
+    {
+        void visit(int k, Board mineMap) throws IOException;
+    }
+}
@@ -0,0 +1,261 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/******************************************************************************
+ *  Compact binary mine map file.
+ *
+ *  Layout, big endian:
+ *      int   magic    "MSMP"
+ *      short version  1
+ *      short flags    0, reserved
+ *      int   rows
+ *      int   cols
+ *      int   mines
+ *      byte  bits[(rows*cols+7)/8]   bit k set => square (k/cols, k%cols) is a mine
+ *
+ *  Only the mines are stored, the neighbour counts are recomputed on load.
+ *  Files are read and written through a MappedByteBuffer, so the bits go
+ *  straight between the page cache and the Board.
+ *
+ *  The old tab separated text format is kept in saveText/loadText.
+ *
+ *  Execution:  java minesweeper.MineMapFile minemap.txt minemap.msmp
+ *  converts a text mine map into the binary format.
+ *
+ ******************************************************************************/
+
+public class MineMapFile {
+
+    public static final int MAGIC = 0x4D534D50;
+    public static final short VERSION = 1;
+    public static final int HEADER = 20;
+
+    /* true if the file starts with the binary magic */
+    public static boolean isBinary(String filename) throws IOException
+    {
+        Path path = Paths.get(filename);
+        if (Files.size(path) < HEADER)
+        {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            channel.read(head, 0);
+            head.flip();
+            return head.getInt() == MAGIC;
+        }
+    }
+
+    public static void save(Board mineMap, String filename) throws IOException
+    {
+        long size = 8 + bodyBytes(mineMap);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+            writeBody(mineMap, out);
+            out.force();
+        }
+    }
+
+    public static Board load(String filename) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+        {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < HEADER)
+            {
+                throw new IOException(filename + ": truncated mine map");
+            }
+            if (in.getInt() != MAGIC)
+            {
+                throw new IOException(filename + ": not a binary mine map");
+            }
+            short version = in.getShort();
+            if (version != VERSION)
+            {
+                throw new IOException(filename + ": unsupported mine map version " + version);
+            }
+            in.getShort();
+            return readBody(in, filename);
+        }
+    }
+
+    /* Size of one encoded board: rows, cols, mines and the mine bits */
+    static long bodyBytes(Board mineMap)
+    {
+        return 12 + bitBytes(mineMap.rows(), mineMap.cols());
+    }
+
+    /* Encode rows, cols, mines and the mine bits of mineMap at the position of out */
+    static void writeBody(Board mineMap, ByteBuffer out)
+    {
+        int rows = mineMap.rows();
+        int cols = mineMap.cols();
+        int at = out.position();
+        out.putInt(rows).putInt(cols).putInt(0);
+
+        byte[] cells = mineMap.cells();
+        int mines = 0;
+        int bits = 0;
+        int k = 0;
+        for (int i = 0; i < rows; i++)
+        {
+            int base = mineMap.index(i, 0);
+            for (int j = 0; j < cols; j++, k++)
+            {
+                if (cells[base + j] == Board.MINE)
+                {
+                    bits |= 1 << (k & 7);
+                    mines++;
+                }
+                if ((k & 7) == 7)
+                {
+                    out.put((byte) bits);
+                    bits = 0;
+                }
+            }
+        }
+        if ((k & 7) != 0)
+        {
+            out.put((byte) bits);
+        }
+        out.putInt(at + 8, mines);
+    }
+
+    /* Decode a board written by writeBody, neighbour counts are recomputed */
+    static Board readBody(ByteBuffer in, String name) throws IOException
+    {
+        if (in.remaining() < 12)
+        {
+            throw new IOException(name + ": truncated mine map");
+        }
+        int rows = in.getInt();
+        int cols = in.getInt();
+        in.getInt();
+        if (rows <= 0 || cols <= 0 || in.remaining() < bitBytes(rows, cols))
+        {
+            throw new IOException(name + ": truncated mine map");
+        }
+
+        Board mineMap = new Board(rows, cols);
+        long squares = (long) rows * cols;
+        for (long b = 0; b < squares; b += 8)
+        {
+            int bits = in.get() & 0xFF;
+            while (bits != 0)
+            {
+                long k = b + Integer.numberOfTrailingZeros(bits);
+                mineMap.set((int) (k / cols), (int) (k % cols), Board.MINE);
+                bits &= bits - 1;
+            }
+        }
+        mineMap.countMines();
+        return mineMap;
+    }
+
+    /* Convert a text mine map into the binary format */
+    public static void convert(String textFile, String binaryFile) throws IOException
+    {
+        save(Board.fromArray(loadText(textFile)), binaryFile);
+    }
+
+    /* Write the text format: "rows cols" then one tab separated line per row */
+    public static void saveText(int[][] mineMap, String filename) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.US_ASCII))
+        {
+            //keep the row and column information. We need it when we are loading it.
+            out.write(mineMap.length + " " + mineMap[0].length + "\n");
+            for (int[] row : mineMap)
+            {
+                for (int cell : row)
+                {
+                    out.write(Integer.toString(cell));
+                    out.write('\t');
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    /* Read the text format, the numbers are scanned by hand instead of split with a regex */
+    public static int[][] loadText(String filename) throws IOException
+    {
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(filename), StandardCharsets.US_ASCII))
+        {
+            String line = in.readLine();
+            if (line == null)
+            {
+                throw new IOException(filename + ": empty mine map");
+            }
+            int pos = line.indexOf(' ');
+            int m = Integer.parseInt(line.substring(0, pos).trim());
+            int n = Integer.parseInt(line.substring(pos + 1).trim());
+            int[][] mineMap = new int[m][n];
+
+            for (int i = 0; i < m && (line = in.readLine()) != null; i++)
+            {
+                int j = 0;
+                int k = 0;
+                int len = line.length();
+                while (k < len && j < n)
+                {
+                    char c = line.charAt(k);
+                    if (Character.isWhitespace(c))
+                    {
+                        k++;
+                        continue;
+                    }
+                    boolean negative = c == '-';
+                    if (negative)
+                    {
+                        k++;
+                    }
+                    int start = k;
+                    int value = 0;
+                    while (k < len && (c = line.charAt(k)) >= '0' && c <= '9')
+                    {
+                        value = value * 10 + (c - '0');
+                        k++;
+                    }
+                    if (k == start)
+                    {
+                        throw new IOException(filename + ": bad number in row " + i);
+                    }
+                    mineMap[i][j++] = negative ? -value : value;
+                }
+            }
+            return mineMap;
+        }
+    }
+
+    static long bitBytes(int rows, int cols)
+    {
+        return ((long) rows * cols + 7) / 8;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.out.println("Usage: java minesweeper.MineMapFile text-map binary-map");
+            return;
+        }
+        convert(args[0], args[1]);
+    }
+}
@@ -1,16 +1,11 @@
 package minesweeper;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.util.Vector;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.Random;
-import java.util.ArrayList;
-import java.awt.geom.Point2D;
+import java.util.SplittableRandom;
 
 /******************************************************************************
  *  Compilation:  javac Minesweeper.java
@@ -28,9 +23,11 @@ import java.awt.geom.Point2D;
  *  the surrounding for you. Here, we open up all "0" to you, so you have something to start with
  *  when solving the puzzle.
  *  NOTE:
- *  1. Use the gameMap[][] for solving the puzzle.
- *  2. Use the mineMap[][] for reference.
+ *  1. Use the gameMap for solving the puzzle.
+ *  2. Use the mineMap for reference.
+ *  Both are flat one-byte-per-cell Boards, see Board.java.
  *  3. Use the openSquare() to open up a square.
+ *  The game itself and its solver live in Game, for use without this harness.
  *
  *  Sample execution:
  *
@@ -50,21 +47,25 @@ import java.awt.geom.Point2D;
  *
  ******************************************************************************/
 
-public class Minesweeper { 
+public class Minesweeper extends Game { 
 	
-	public final int MINE=9;
-	public final int CLOSE=-1;  
-	public final int BLANK=0;
+	/* marks a wrongly flagged square in the game map for debugging */
+	public final int WRONG=100;
 	
-	private int[][] mineMap;
-	private int[][] gameMap;
-	private TreeSet<String> mineList;
-	
-	private static boolean noDebugMsg = false;
-        private static int bombAction;
-        private static int unSureMine;
+	private Solver solver = Solver.HEURISTIC;
+
+        /* phase timers and outcome of this game, added to a shared Metrics by recordTo */
+        private long generateNanos;
+        private long solveNanos;
+        private boolean won;
+ 	
+        /* size of the maps reset(seed) draws, 0 if the game was built from a board */
+        private int mapRows;
+        private int mapCols;
+        private double density;
+        /* mine map reset(seed) draws into, never a board the caller passed in */
+        private Board ownMineMap;
  	
-        private static ArrayList<Point2D> unsolvedMineCoor = new ArrayList<Point2D>();
 	/**
 	 * Create a new minemap and save the minemap to a file
 	 * @param m
@@ -74,10 +75,7 @@ public class Minesweeper {
 	 */
 	public Minesweeper(int m, int n, double p, String filename) {
 
-		mineMap = generateMineMap(m, n, p);
-		gameMap = createGameMap(mineMap);
-		mineList = getAllMineLocation(mineMap);
-		//System.out.println("Total number of mines: " + mineList.size());
+		this(m, n, p, new SplittableRandom(), false);
 		
 		saveMineMap(mineMap, filename);
 		
@@ -89,24 +87,109 @@ public class Minesweeper {
 	}
 	
 	
+	/**
+	 * Create a new minemap in memory only, every random decision of the game
+	 * (mine placement, first click, guesses) is drawn from rand.
+	 * @param m
+	 * @param n
+	 * @param p
+	 * @param rand
+	 * @param firstClickSafe if true, pick the first click before placing the mines,
+	 *        keep that square free of mines and open it
+	 */
+	public Minesweeper(int m, int n, double p, SplittableRandom rand, boolean firstClickSafe) {
+
+		this(m, n, p);
+		start(rand, firstClickSafe);
+	}
+	
+	/**
+	 * Create a reusable game without a board yet, reset(seed) draws and starts every game.
+	 * The boards, ledgers and solver buffers are kept from game to game, so playing many
+	 * games in a row on one instance allocates next to nothing.
+	 * @param m
+	 * @param n
+	 * @param p
+	 */
+	public Minesweeper(int m, int n, double p) {
+
+		mapRows = m;
+		mapCols = n;
+		density = p;
+	}
+	
+	/**
+	 * Play an existing minemap, e.g. one read back from a MineMapCorpus.
+	 * The mine map is only read, so one board can back many games.
+	 * @param mineMap
+	 * @param rand
+	 */
+	public Minesweeper(Board mineMap, SplittableRandom rand) {
+
+		startGame(mineMap, rand);
+	}
+	
 	/**
 	 * Load minemap from file
 	 * @param filename
 	 */
 	public Minesweeper(String filename) {
 		
-		mineMap = loadMineMap(filename);
+		Board board = loadBoard(filename);
+		mineMap = board;
 		printMineMap();
 		
-		gameMap = createGameMap(mineMap);
+		startGame(board, new SplittableRandom());
 		printGameMap();
 		
-		mineList = getAllMineLocation(mineMap);
-		System.out.println("Total mines: " + mineList.size());
+		System.out.println("Total mines: " + getMineLeft());
 		
 
 	}
 	
+	/**
+	 * Start the next game on this instance, the same game new Minesweeper(m, n, p,
+	 * new SplittableRandom(seed), true) would play. Needs the m, n, p of a constructor.
+	 * @param seed
+	 */
+	public synchronized void reset(long seed) {
+
+		if (mapRows <= 0)
+			throw new IllegalStateException("No board size, construct the game with m, n, p");
+		start(new SplittableRandom(seed), true);
+	}
+	
+	/* Draw a map of the constructor size into the own board and start playing it */
+	private void start(SplittableRandom rand, boolean firstClickSafe) {
+
+		int x = -1;
+		int y = -1;
+		if (firstClickSafe) {
+			x = rand.nextInt(mapRows+4);
+			y = rand.nextInt(mapCols+4);
+		}
+		if (ownMineMap == null)
+			ownMineMap = new Board(mapRows+4, mapCols+4);
+		long start = System.nanoTime();
+		MineGenerator.fillDensity(ownMineMap, density, rand, x, y);
+		long generate = System.nanoTime() - start;
+		startGame(ownMineMap, rand);
+		generateNanos = generate;
+		//System.out.println("Total number of mines: " + getMineLeft());
+		
+		if (firstClickSafe)
+			openSquare(x, y);
+	}
+	
+	@Override
+	void startGame(Board mineMap, SplittableRandom rand) {
+
+		generateNanos = 0;
+		solveNanos = 0;
+		won = false;
+		super.startGame(mineMap, rand);
+	}
+	
 	/**
 	 * Generate a random mine map. Mine is tag with the letter 9.
 	 * @param m row
@@ -116,157 +199,36 @@ public class Minesweeper {
 	 * @return
 	 */
     public int[][] generateMineMap(int m, int n, double p) { 
-        //int m = Integer.parseInt(args[0]);
-        //int n = Integer.parseInt(args[1]);
-        //double p = Double.parseDouble(args[2]);
-      
-        // game grid is [1..m][1..n], border is used to handle boundary cases
-        boolean[][] bombs = new boolean[m+2][n+2];
-        int[][] mineMap = new int[m+4][n+4];
-        
-        for (int i = 1; i <= m; i++)
-            for (int j = 1; j <= n; j++)
-                bombs[i][j] = (Math.random() < p);
-
-        /* sytan close this
-        // print game
-        for (int i = 1; i <= m; i++) {
-            for (int j = 1; j <= n; j++)
-                if (bombs[i][j]) System.out.print("* ");
-                else             System.out.print(". ");
-            System.out.println();
-        }
-        */
-        
-        // sol[i][j] = # bombs adjacent to cell (i, j)
-        int[][] sol = new int[m+2][n+2];
-        for (int i = 0; i <= m+1; i++)
-            for (int j = 0; j <= n+1; j++)
-                // (ii, jj) indexes neighboring cells
-                for (int ii = i - 1; ii <= i + 1; ii++)
-                    for (int jj = j - 1; jj <= j + 1; jj++)
-                        if (ii>=0 && jj>=0 && ii<m+2 && jj<n+2 && bombs[ii][jj]) sol[i][j]++;
-
-        // print solution
-        //System.out.println(); //sytan
-        for (int i = 0; i <= m+1; i++) {
-            for (int j = 0; j <= n+1; j++) {
-                if (bombs[i][j]){ 
-                	//System.out.print("* "); 
-                	mineMap[i+1][j+1] = 9;
-                } else{    
-                	mineMap[i+1][j+1] = sol[i][j];
-                	//System.out.print(sol[i][j] + " ");
-                }
-            }
-            //System.out.println(); //sytan
-        }
-        
-        //printMap(mineMap);
-        
-        return mineMap;
-
+        return MineGenerator.withDensity(m, n, p, new SplittableRandom(), -1, -1).toArray();
     }
     
     public int[][] createGameMap(int[][] mineMap){
     	
-    	int m = mineMap.length;
-    	int n = mineMap[0].length;
-    	int[][] gameMap = new int[m][n];
-    	
-    	//initialize game map, close all square
-    	for(int i=0; i<m; i++){
-    		for(int j=0; j<n; j++){
-    			//Set the square to close 
-    			gameMap[i][j] = CLOSE;
-    		}
-    	}
-    	
+    	return createGameMap(Board.fromArray(mineMap)).toArray();
+    }
 
-    	
-    	
-    	//open all square=0
-    	for(int i=0; i<m; i++){
-    		for(int j=0; j<n; j++){
-    			if (mineMap[i][j] == BLANK)
-    				openSquare(i, j, gameMap);
+    public void saveMineMap(int[][] mineMap, String filename) {
+    		try {
+    			MineMapFile.saveText(mineMap, filename);
+    		} catch(IOException e) {
+    			System.out.println(e);
     		}
-    	}
-    	
-    	return gameMap;
     }
-    
-    /**
-     * Open a square in the map. If the square is a blank, it will open up neighboring squares.
-     * @param x row
-     * @param y column
-     * @return if return true, it is not a mine. If it is false, you open up a mine!
-     */
-    private boolean openSquare(int x, int y, int[][] gameMap){
-    	
 
-    	if (gameMap[x][y] == CLOSE){
-    		
-    		//open the square
-    		gameMap[x][y] = mineMap[x][y];
-    		
-    		if (gameMap[x][y] == BLANK){
-    			//recursively open the neighboring squares
-    			for(int i=x-1; i<=x+1; i++){
-    				for(int j=y-1; j<=y+1; j++){
-    					if (i>=0 && j>=0 && i<mineMap.length && j<mineMap[0].length){
-    						openSquare(i, j, gameMap);
-    					} 
-    				}
-    			}
-    		} else if (gameMap[x][y] != MINE){
-    			//continue the game
-    			return true;
-    		} else{
-    			//you open up a mine!!!
-                        if(!noDebugMsg)
-                            System.out.println("Open mine - lose");
-    			return false;	
-    		}
-    	} else{
-    		//the square already open. Do nothing
-    		return true;
-    	}
-    	
-    	return true;
+    public void saveMineMap(Board mineMap, String filename) {
+    		saveMineMap(mineMap.toArray(), filename);
     }
-    
-    
-    public void saveMineMap(int[][] mineMap, String filename) {
+
+    /* Save in the compact binary format of MineMapFile, mines only */
+    public void saveMineMapBinary(Board mineMap, String filename) {
     		try {
-    			FileWriter fw = new FileWriter(filename);
-    			
-    			//keep the row and column information. We need it when we are loading it.
-    			fw.write(mineMap.length + " " + mineMap[0].length + "\n");
-    			
-    			for (int i = 0; i < mineMap.length; i++) {
-    	            for (int j = 0; j < mineMap[i].length; j++) {
-    	                fw.write(mineMap[i][j] + "\t");
-    	            }
-    	            fw.write("\n");;
-    	        }
-    			
-    			fw.close();
+    			MineMapFile.save(mineMap, filename);
     		} catch(IOException e) {
     			System.out.println(e);
     		}
     }
     
-    public void printGameMap() {
-        if (!noDebugMsg)
-        {
-    		System.out.println("GAME MAP");
-    		printMap(gameMap);
-    		System.out.println();
-        }
-    }
-    
-    public void printMineMap() {
+    public synchronized void printMineMap() {
         if (!noDebugMsg)
         {
     	    System.out.println("MINE MAP");
@@ -301,16 +263,15 @@ public class Minesweeper {
 		
 		return mineList;
     }
-    
-    
+
+    private static final Pattern WORD = Pattern.compile("\\S+");
+
     protected Vector<String> extractWords(String sentence) {
 	    Vector<String> words = new Vector<String>();
-	    String exp = "\\S+";
 
 	    //floating point
 	    if (sentence != null) {
-	      Pattern p = Pattern.compile(exp);
-	      Matcher m = p.matcher(sentence);
+	      Matcher m = WORD.matcher(sentence);
 
 	      //we only need the first 3 strings
 	      while (m.find()) {
@@ -327,319 +288,126 @@ public class Minesweeper {
     		int[][] mineMap=null;
     		
     		try{
-			FileReader fr = new FileReader(filename);
-			LineNumberReader lnr = new LineNumberReader(fr);
-			
-			String line = lnr.readLine();
-			int pos = line.indexOf(" ");
-			int m = Integer.parseInt(line.substring(0, pos));
-			int n = Integer.parseInt(line.substring(pos+1));
-			
-			//initialize mineMap
-			mineMap = new int[m][n];
-			
-			line = lnr.readLine();
-			int mCounter = 0;
-			
-			while(line != null) {
-
-				Vector<String> words = extractWords(line);
-				
-				for(int i=0; i<words.size(); i++) {
-					mineMap[mCounter][i] = Integer.parseInt(words.get(i));
-				}
-				mCounter++;
-				line = lnr.readLine();
-			}
-
-			
-			lnr.close();
-			fr.close();
-			
+			mineMap = MineMapFile.loadText(filename);
     		} catch(IOException e) {
 			System.out.println(e);
     		}
-    		
-    		
 		
 		return mineMap;
     }
+
+    /* Load a mine map in either the binary or the text format */
+    public Board loadBoard(String filename) {
+    		
+    		try{
+			if (MineMapFile.isBinary(filename))
+				return MineMapFile.load(filename);
+    		} catch(IOException e) {
+			System.out.println(e);
+			return null;
+    		}
+		
+		int[][] mineMap = loadMineMap(filename);
+		return mineMap == null ? null : Board.fromArray(mineMap);
+    }
     
-    public boolean solution(int count)
+    public synchronized boolean solution(int count)
     {
         //logic start at here
-        System.out.println("**** GAME @ "+ count +" START AT HERE! ***");
-        printGameMap();
-        System.out.println("***************************************");
-        /* Run over each cell to see any unsolved mine */
-        getUnsolvedMine();
-        reduceMine();
-        System.out.println("****** FINAL SOLUTION *******");
-        printGameMap();
-        
-        /* If all mine solved only consider end game */
-        if (getResult() && getMineLeft()==0)
+        if (!noDebugMsg)
         {
-            //System.out.println("You win!");
-            printMineMap();
+            System.out.println("**** GAME @ "+ count +" START AT HERE! ***");
             printGameMap();
-            return true;
+            System.out.println("***************************************");
         }
-        else
+        /* Run over each cell to see any unsolved mine */
+        long start = System.nanoTime();
+        getUnsolvedMine();
+        solve(solver);
+        solveNanos = System.nanoTime() - start;
+        if (!noDebugMsg)
         {
-            //System.out.println("You lose!");
-            //debug purpose only;
-            printMineMap();
+            System.out.println("****** FINAL SOLUTION *******");
             printGameMap();
-            return false;
-            
         }
+        
+        /* If all mine solved only consider end game */
+        boolean win = getResult() && getMineLeft()==0;
+        won = win;
+        listener.finished(win);
+
+        //debug purpose only;
+        printMineMap();
+        printGameMap();
+        return win;
     }
     
     /* Validate the gamemap result see if we tag correctly? */
-    public boolean getResult()
+    public synchronized boolean getResult()
     {
-        boolean flag = false;
-        for (int i=0;i<gameMap.length;i++)
+        // as before the bitsets, a game without a single flag has no result to check
+        if (flags == 0)
         {
-            for(int j=0;j<gameMap.length;j++)
-            {
-                if (gameMap[i][j] == MINE)
-                {
-                    /* Hi, i am bomb */
-                    flag = tagMine(i,j);
-                    if (!flag)
-                    {
-                        // if solution is wrong,label the wrong answer for debugging, terminate and return false
-                        gameMap[i][j] = 1000;
-                        return flag;
-                    }
-                }
-            }
+            return false;
         }
 
-        return flag;
-    }
-
-    /* Based on the tagMine, try to solve the array by checking potential mine only */
-    public void reduceMine()
-    {
-        int k = 0;
-        int prevUnflagMine = 0;
-        boolean noImprovement = false;
-        //while(!noImprovement)
-        for (k=0;k<50;k++)
+        /* Hi, i am bomb: every flag has to be on the mine ledger, checked 64 squares at a time */
+        int wrong = flagList.firstNotIn(mineList);
+        if (wrong >= 0)
         {
-            prevUnflagMine = unsolvedMineCoor.size();
-
-            /* If no imporvement seen, try random poke */
-            if (noImprovement)
-            {
-                if (!noDebugMsg)
-                {
-                    System.out.println("No improvement observed, end game @ round "+k);
-                }
-
-                Random rand = new Random();
-                int index = rand.nextInt(unsolvedMineCoor.size());
-                //int index = 0;
-                //if (!noDebugMsg)
-                {
-                    System.out.println("Want to poke");
-                    printGameMap();
-                    System.out.println("Poke index "+index+" @ x"+(int)unsolvedMineCoor.get(index).getX()+" y:"+(int)unsolvedMineCoor.get(index).getY());
-                }
-                // start guessing on random unopen
-                //if(!openSquare(x_coor[index],y_coor[index],gameMap))
-                if(!OpenUnflagMine((int)unsolvedMineCoor.get(index).getX(),(int)unsolvedMineCoor.get(index).getY()))
-                {
-                    System.out.println("Fail to open during game");
-                    return;
-                }
-                // noImprovement = false;
-                /* Recursively checking on CLOSE target again */
-                reduceMine();
-                break;
-            }
-            
-            if(unsolvedMineCoor.size() == 0)
-            {
-                // if all CLOSE solved, exit from game
-                break;
-            }
-            
-
-            for (int kk=0; kk<unsolvedMineCoor.size();kk++)
-            {
-                // Just check at each single cell, if potential bomb only evaluate
-                //printGameMap();
-                int _x = (int)unsolvedMineCoor.get(kk).getX();
-                int _y = (int)unsolvedMineCoor.get(kk).getY();
-                //System.out.println("KK:" + kk + "Checking on x: "+ _x+ " y: " + _y +" CLOSE: "+unsolvedMineCoor.size());
-                checkOnMine(_x,_y);
-            }
-            
-            //if no improvement, try random poke
-            if (prevUnflagMine == unsolvedMineCoor.size())
-                noImprovement = true;
+            // if solution is wrong,label the wrong answer for debugging, terminate and return false
+            if (!noDebugMsg)
+                System.out.println("WRONG ANSWER! @ " +gameMap.col(wrong) + " "+gameMap.row(wrong));
+            gameMap.set(wrong,(byte)WRONG);
+            return false;
         }
+
+        // all flags are right, tag them off the ledger at once
+        mineList.andNot(flagList);
+        mineLeft = mineList.cardinality();
+        return true;
     }
 
     /* Start checking from top left handside, then move surrounding the target cell */
-    public void checkOnMine(int x, int y)
+    public synchronized void checkOnMine(int x, int y)
     {
-        // check from the top left to top right, then loop for all until -1 set to 9 or loop end
-        for (int a=x-1;a<=x+1;a++)
-        {
-            for (int b=y-1;b<=y+1;b++)
-            {
-                int bombCount = getSurroundBombInfo(a,b);
-                
-                if (bombCount != MINE && bombCount != CLOSE)
-                {
-                    if (gameMap[x][y] != MINE && gameMap[x][y] == CLOSE)
-                {
-                    /* Check on surrounding info of target cell */
-                    checkCellSurroundingInfo(a,b);
-                    if (!noDebugMsg)
-                    {
-                        System.out.println("a:"+a+" b:"+b+" bomb:"+bombCount + " Mine: "+bombAction + " UnsureMine:" +unSureMine);
-                    }
-
-                    if((bombCount-bombAction)==0 && unSureMine >= 0)
-                    {
-                        // Confirm not bomb, open mine
-                        //if (!openSquare(y,x,gameMap))
-                        if(!OpenUnflagMine(x,y))
-                        {
-                            System.out.println("Fail to open during game");
-                            return;
-                        }
-                        else
-                        {
-                            if(!noDebugMsg)
-                            {
-                                System.out.println("Successfuly open up right");
-                            }
-                        }
-                        printGameMap();
-                    }
-                    else if(unSureMine == (bombCount-bombAction))
-                    {
-                        // Confirm is bomb, tag as bomb
-                        if (!noDebugMsg)
-                        {
-                            System.out.println("Set mine @ "+y+" "+x);
-                            System.out.println("a:"+a+" b:"+b+" bomb:"+bombCount + " Mine: "+bombAction + " UnsureMine:" +unSureMine);
-                        }
-                        TagUnflagMine(x,y);
-                        printGameMap();
-                    }
-                    else
-                    {
-                        // can't determine, do nothing and wait for next loop
-                        if (!noDebugMsg)
-                        {
-                            System.out.println("Do nothing - cant determine");
-                        }
-                    }
-                }
-                }
-            }
-        }
+        checkOnMine(gameMap.index(x, y));
     }
-    
+
     /* Gather the surrouding information of target cell: 1) bomb 2) unflag mine*/
-    public void checkCellSurroundingInfo(int x, int y)
+    public synchronized void checkCellSurroundingInfo(int x, int y)
     {
-        int countMine = 0;
-        int countFlag = 0;
- 
-        for (int i=x-1;i<=x+1;i++)
-        {
-            for (int j=y-1;j<=y+1;j++)
-            {
-                if (gameMap[i][j] == MINE)
-                {
-                    countMine += 1;
-                }
-                if (gameMap[i][j] == CLOSE)
-                {
-                    countFlag += 1;
-                }
-            }
-        }
- 
-        // Update static variables for the counting event
-        unSureMine = countFlag;
-        bombAction = countMine;
+        checkCellSurroundingInfo(gameMap.index(x, y));
     }
 
-    /* Wrapper function to openSquare, it removes the flag from arraylist as well */
-    public boolean OpenUnflagMine(int x, int y)
+    /* Wrapper function to openSquare, it removes the opened squares from the close set as well */
+    public synchronized boolean OpenUnflagMine(int x, int y)
     {
-        if (!openSquare(x,y,gameMap))
-        {
-            System.out.println("Fail to open during game");
-            return false;
-        }
-        else
-        {
-            Point2D match_point = new Point2D.Double(x,y);
-            for (int i=0;i<unsolvedMineCoor.size();i++)
-            {
-                if (match_point.equals(unsolvedMineCoor.get(i)))
-                {
-                    unsolvedMineCoor.remove(i);
-                    return true;
-                }
-            }
-            /* item not found */
-            return false;
-        }
+        return openDeduced(gameMap.index(x, y));
     }
 
-    /* Wrapper function to tag mine and update on the array list */
-    public void TagUnflagMine(int x, int y)
+    /* Wrapper function to tag mine and update the close set */
+    public synchronized void TagUnflagMine(int x, int y)
     {
-        Point2D match_point = new Point2D.Double(x,y);
-        for (int i=0;i<unsolvedMineCoor.size();i++)
-        {
-            if (match_point.equals(unsolvedMineCoor.get(i)))
-            {
-                gameMap[x][y] = MINE;
-                unsolvedMineCoor.remove(i);
-            }
-        }
+        flagSquare(gameMap.index(x, y));
     }
 
     /* Get the surround bomb info from target */
-    public int getSurroundBombInfo(int x, int y)
+    public synchronized int getSurroundBombInfo(int x, int y)
     {
-        return gameMap[x][y];
+        return gameMap.get(x, y);
     }
 
-    /* Get current unsolved mine flag from the whole game map and populate the arraylist */
-    public void getUnsolvedMine()
+    /* Get current unsolved mine flag from the whole game map and populate the close set */
+    public synchronized void getUnsolvedMine()
     {
-        for(int i=0;i<gameMap.length;i++)
-        {
-            for (int j=0;j<gameMap.length;j++)
-            {
-                if (gameMap[i][j] == CLOSE)
-                {
-                    Point2D point_add = new Point2D.Double(i,j);
-                    unsolvedMineCoor.add(point_add);
-                    //System.out.println(unsolvedMineCoor.get(unsolvedMineCoor.size()-1).getX()+" "+unsolvedMineCoor.get(unsolvedMineCoor.size()-1).getY());
-                }
-            }
-        }
+        fillCloseSquares();
     }
 
     /* return current minelist size */
-    public int getMineLeft()
+    public synchronized int getMineLeft()
     {
-        return mineList.size();
+        return mineLeft;
     }
 
     /**
@@ -648,16 +416,17 @@ public class Minesweeper {
      * @param j j column
      * @return
      */
-    public boolean tagMine(int i, int j) {
+    public synchronized boolean tagMine(int i, int j) {
     	
-    		String mine = new String(i + " " + j);
+    		int mine = mineMap.index(i, j);
 
-    		if (mineList.contains(mine)) {
-    			mineList.remove(mine);
+    		if (mineList.get(mine)) {
+    			mineList.clear(mine);
+    			mineLeft--;
                         if (!noDebugMsg)
                         {
                             System.out.println("CORRECT ANSWER!");
-                            System.out.println("Number of mines: " + mineList.size());
+                            System.out.println("Number of mines: " + mineLeft);
                         }
     			return true;
     		} else {
@@ -668,51 +437,67 @@ public class Minesweeper {
     	
     }
     
+    /* Randomly open 1 box to start the game, return false if it is a mine */
+    public synchronized boolean openRandomSquare()
+    {
+        return openSquare(rand.nextInt(gameMap.rows()), rand.nextInt(gameMap.cols()));
+    }
+
+    /* A copy of the mine map of this game, for saving it e.g. into a MineMapCorpus */
+    public synchronized Board getMineMap()
+    {
+        return mineMap.copy();
+    }
+
+    /* Add the counters and timers of this game to metrics, call once after solution() */
+    public synchronized void recordTo(Metrics metrics)
+    {
+        metrics.add(Metrics.Counter.GAMES, 1);
+        metrics.add(Metrics.Counter.WINS, won ? 1 : 0);
+        metrics.add(Metrics.Counter.FLOOD_OPENED, floodOpened);
+        metrics.add(Metrics.Counter.DEDUCED_OPENED, deducedOpened);
+        metrics.add(Metrics.Counter.FLAGS, flagCount);
+        metrics.add(Metrics.Counter.PAIR_RESOLVED, pairResolved);
+        metrics.add(Metrics.Counter.PATTERN_HITS, patternHits);
+        metrics.add(Metrics.Counter.PATTERN_MISSES, patternMisses);
+        metrics.add(Metrics.Counter.FRONTIER_RESOLVED, frontierResolved);
+        metrics.add(Metrics.Counter.GUESSES, guessCount);
+        metrics.add(Metrics.Counter.ROUNDS, roundCount);
+        metrics.add(Metrics.Counter.CHECKS, checkCount);
+        if (generateNanos > 0)
+            metrics.time(Metrics.Phase.GENERATE, generateNanos);
+        metrics.time(Metrics.Phase.CREATE, createNanos);
+        metrics.time(Metrics.Phase.SOLVE, solveNanos);
+    }
+
+    /* Backend used by solution(), Solver.HEURISTIC unless set */
+    public synchronized void setSolver(Solver solver)
+    {
+        this.solver = solver;
+    }
+
+    /**
+     * Usage: java Minesweeper [games] [threads] [seed] [heuristic|linear]
+     * One 12x12 batch at p=0.25, Sweep runs a grid of sizes and densities.
+     */
     public static void main(String[] args){
         
-        noDebugMsg = true;  //set false to see debug msg, set true to skip debug msg
-        int max_arraySize = 30;
-        int count_win = 0;
-        int MAX_ROUND = 100;
+        int MAX_ROUND = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        Solver solver = args.length > 3 ? Solver.named(args[3]) : Solver.HEURISTIC;
 
-        //while(max_arraySize>4)
-        
+        int m = 12, n = 12;
+        try (BatchRunner runner = new BatchRunner(m, n, 0.25, threads))
         {
-            count_win = 0;
-            for (int j=0;j<MAX_ROUND;j++)
-            {
-                //Generate a new map
-                Minesweeper m = new Minesweeper(12, 12, 0.25, "minemap.txt");
-
-                //For testing, you may want to generate the map once, and save & load it again later 
-                //Minesweeper m = new Minesweeper("minemap.txt");
-                //m.printGameMap();
-
-                /* Randomly open 1 box */
-                Random rand = new Random();
-                /* If open up correctly at first, only continue */
-                if (m.openSquare(rand.nextInt(m.gameMap.length), rand.nextInt(m.gameMap.length), m.gameMap))
-                {
-                    if (m.solution(j))
-                    {
-                        // count winning rate
-                        count_win += 1;
-                    }
-                }
-                else
-                {
-                    /* If open game at first round, ignore it and recount */
-                    //System.out.println("Open bomb at begin, restart");
-                    j--;
-                }
-
-            }
-            System.out.println("ArraySize: "+max_arraySize+ " win: " +count_win + " out of " + MAX_ROUND);
-            max_arraySize--;
+            Metrics metrics = new Metrics();
+            runner.setMetrics(metrics);
+            runner.setSolver(solver);
+            BatchRunner.Report report = runner.run(MAX_ROUND, seed);
+            // the board of an m x n game has a margin of 2 on every side, print what is played
+            System.out.println("ArraySize: "+(m+4)+"x"+(n+4)+ " win: " +report.wins + " out of " + report.games);
+            System.out.println(report);
+            System.out.print(metrics.summary());
         }
-        //int sum = 0; 
-        //for (int i : avgK)
-        //    sum = sum + i;
-        //System.out.println(sum/avgK.size());
     }
 }
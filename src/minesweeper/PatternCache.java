@@ -0,0 +1,199 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/******************************************************************************
+ *  Results of the pairwise rule of Game.reducePairs by the local window
+ *  they depend on, so a pattern seen before costs one lookup instead of
+ *  comparing the square with up to 24 others.
+ *
+ *  For a numbered square A the rule reads A, the numbers B at most 2 away
+ *  that share a close square with A, and whether the squares around A and
+ *  each such B are close or flagged. The key keeps exactly that, over the
+ *  7x7 frame of reducePairs, and codes every other square as 0, so windows
+ *  that only differ where the rule does not look share one entry. The 5x5
+ *  middle takes 4 bits a square and the outer ring, which only holds
+ *  states, 2 bits: 148 bits in three longs. The result is the safe and the
+ *  mine mask over the frame.
+ *
+ *  The table is direct mapped with 2^bits slots and a new pattern replaces
+ *  whatever shared its slot, so its memory is fixed and it can stay with a
+ *  reused game from board to board. A precomputed table is out of reach,
+ *  the 5x5 window alone has 12^25 states.
+ *
+ *  A game has no cache unless Game.setPatternCache gives it one. Hits save
+ *  the comparisons of the rule but the lookup reads 49 squares itself, and
+ *  the table is 40 bytes a slot, so it is for a long lived game on large
+ *  boards, not for many concurrent small games.
+ *
+ ******************************************************************************/
+
+final class PatternCache {
+
+    /* frame position p is (p / 7 - 3, p % 7 - 3) from the middle, as in reducePairs */
+    private static final boolean[] INNER = new boolean[49];
+    static
+    {
+        for (int p = 0; p < 49; p++)
+        {
+            INNER[p] = Math.abs(p / 7 - 3) <= 2 && Math.abs(p % 7 - 3) <= 2;
+        }
+    }
+
+    private final int mask;
+    /* three key words and the safe and mine masks per slot, a slot is used once bit 63 of its third word is set */
+    private final long[] keys;
+    private final long[] results;
+
+    /* frame offsets of the 8 neighbours */
+    private static final int[] AROUND = {-8, -7, -6, -1, 1, 6, 7, 8};
+
+    private int[] frame = new int[49];
+    /* the window read by find, and its key before packing: 0 not read by the rule, 1 close, 2 flagged, 3 open, 4 + n a number n */
+    private final byte[] window = new byte[49];
+    private final byte[] code = new byte[49];
+    private int stride = -1;
+
+    /* key and slot of the last find, and the result it found */
+    private long k0;
+    private long k1;
+    private long k2;
+    private int slot;
+    private long safe;
+    private long mine;
+
+    /**
+     * @param bits the table has 2^bits slots
+     */
+    PatternCache(int bits)
+    {
+        mask = (1 << bits) - 1;
+        keys = new long[3 << bits];
+        results = new long[2 << bits];
+    }
+
+    /**
+     * Look the window around a numbered square up.
+     * @param board game layer
+     * @param index flat index of the numbered square
+     * @return true if it was cached, safe() and mine() then hold the result, otherwise put()
+     * stores the result for this window
+     */
+    boolean find(Board board, int index)
+    {
+        if (stride != board.stride())
+        {
+            stride = board.stride();
+            for (int p = 0; p < 49; p++)
+            {
+                frame[p] = (p / 7 - 3) * stride + (p % 7 - 3);
+            }
+        }
+        byte[] game = board.cells();
+        int x = board.row(index);
+        int y = board.col(index);
+        for (int p = 0; p < 49; p++)
+        {
+            int r = x + p / 7 - 3;
+            int c = y + p % 7 - 3;
+            // the guard ring is the last row and column inside the array
+            window[p] = r < -1 || c < -1 || r > board.rows() || c > board.cols() ? Board.WALL : game[index + frame[p]];
+        }
+
+        // A, the state of its neighbours, and every number B sharing a close square with A with the states around B
+        Arrays.fill(code, (byte) 0);
+        code[24] = (byte) (4 + window[24]);
+        states(24);
+        for (int p = 0; p < 49; p++)
+        {
+            if (p != 24 && INNER[p] && window[p] > Board.BLANK && window[p] < Board.MINE && sharesClose(p))
+            {
+                code[p] = (byte) (4 + window[p]);
+                states(p);
+            }
+        }
+
+        long w0 = 0;
+        long w1 = 0;
+        long w2 = 0;
+        int inner = 0;
+        int ring = 0;
+        for (int p = 0; p < 49; p++)
+        {
+            if (INNER[p])
+            {
+                if (inner < 16)
+                    w0 |= (long) code[p] << (4 * inner);
+                else
+                    w1 |= (long) code[p] << (4 * (inner - 16));
+                inner++;
+            }
+            else
+            {
+                w2 |= (long) code[p] << (2 * ring++);
+            }
+        }
+        w2 |= 1L << 63;
+
+        long h = (w0 * 0x9E3779B97F4A7C15L + w1) * 0x9E3779B97F4A7C15L + w2;
+        h ^= h >>> 31;
+        k0 = w0;
+        k1 = w1;
+        k2 = w2;
+        slot = (int) (h ^ (h >>> 32)) & mask;
+        if (keys[3 * slot] == w0 && keys[3 * slot + 1] == w1 && keys[3 * slot + 2] == w2)
+        {
+            safe = results[2 * slot];
+            mine = results[2 * slot + 1];
+            return true;
+        }
+        return false;
+    }
+
+    /* State code of the 8 neighbours of frame position p, unless they hold a number already coded */
+    private void states(int p)
+    {
+        for (int d = 0; d < 8; d++)
+        {
+            int q = p + AROUND[d];
+            if (code[q] < 4)
+                code[q] = (byte) (window[q] == Board.CLOSE ? 1 : window[q] == Board.MINE ? 2 : 3);
+        }
+    }
+
+    /* True if a close square touches both the middle of the frame and position p */
+    private boolean sharesClose(int p)
+    {
+        for (int d = 0; d < 8; d++)
+        {
+            int q = 24 + AROUND[d];
+            if (window[q] == Board.CLOSE && Math.abs(q / 7 - p / 7) <= 1 && Math.abs(q % 7 - p % 7) <= 1)
+                return true;
+        }
+        return false;
+    }
+
+    /* Store the result for the window of the last find that missed */
+    void put(long safe, long mine)
+    {
+        keys[3 * slot] = k0;
+        keys[3 * slot + 1] = k1;
+        keys[3 * slot + 2] = k2;
+        results[2 * slot] = safe;
+        results[2 * slot + 1] = mine;
+        this.safe = safe;
+        this.mine = mine;
+    }
+
+    /* squares safe in the frame of the last find, as bits of the 7x7 frame */
+    long safe()
+    {
+        return safe;
+    }
+
+    /* squares that are mines in the frame of the last find */
+    long mine()
+    {
+        return mine;
+    }
+}
@@ -0,0 +1,98 @@
+package minesweeper;
+
+/******************************************************************************
+ *  SolverListener that keeps the last capacity events in a ring of longs,
+ *  older events are overwritten. An event is packed as
+ *  type (8 bits) | argument (24 bits) | index (32 bits).
+ *
+ ******************************************************************************/
+
+public class RingTrace implements SolverListener {
+
+    private final long[] events;
+    private final int mask;
+    private long total;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public RingTrace(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        events = new long[size];
+        mask = size - 1;
+    }
+
+    @Override
+    public void opened(int index, int count)
+    {
+        add(OPEN, Math.min(count, 0xFFFFFF), index);
+    }
+
+    @Override
+    public void flagged(int index)
+    {
+        add(FLAG, 0, index);
+    }
+
+    @Override
+    public void guessed(int index)
+    {
+        add(GUESS, 0, index);
+    }
+
+    @Override
+    public void round(int round)
+    {
+        add(ROUND, Math.min(round, 0xFFFFFF), -1);
+    }
+
+    @Override
+    public void finished(boolean won)
+    {
+        add(END, won ? 1 : 0, -1);
+    }
+
+    private void add(int type, int arg, int index)
+    {
+        events[(int) (total++ & mask)] = ((long) type << 56) | ((long) arg << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    /* Number of events still held, at most the capacity */
+    public int size()
+    {
+        return (int) Math.min(total, events.length);
+    }
+
+    /* Number of events seen since the last clear */
+    public long total()
+    {
+        return total;
+    }
+
+    /* i-th held event, 0 is the oldest */
+    public long get(int i)
+    {
+        return events[(int) ((total - size() + i) & mask)];
+    }
+
+    public static int type(long event)
+    {
+        return (int) (event >>> 56);
+    }
+
+    public static int argument(long event)
+    {
+        return (int) (event >>> 32) & 0xFFFFFF;
+    }
+
+    public static int index(long event)
+    {
+        return (int) event;
+    }
+
+    public void clear()
+    {
+        total = 0;
+    }
+}
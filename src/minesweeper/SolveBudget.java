@@ -0,0 +1,108 @@
+package minesweeper;
+
+/******************************************************************************
+ *  Time and work limit of an anytime solve, see Game.solveWithin.
+ *
+ *  An operation is one unit of solver work: a numbered square checked by
+ *  the single square or the pairwise rule, a search step of the frontier
+ *  enumeration, or a guess. Operations are cheap and roughly even, so an
+ *  operation budget gives the same result on every machine, and a time
+ *  budget bounds the latency on this one. The clock is read every 64
+ *  operations and inside the enumeration, so a solve overruns its deadline
+ *  by about that much work.
+ *
+ *  A budget is not thread safe. It is armed by the solve it is passed to,
+ *  so one budget can be reused for solve after solve on one thread.
+ *
+ ******************************************************************************/
+
+public final class SolveBudget {
+
+    private static final int CLOCK_EVERY = 64;
+
+    private final long timeoutNanos;
+    private final long maxOps;
+
+    private long deadline;
+    private long ops;
+    private boolean exhausted;
+
+    /**
+     * @param timeoutNanos time a solve may take, Long.MAX_VALUE for no limit
+     * @param maxOps operations a solve may take, Long.MAX_VALUE for no limit
+     */
+    public SolveBudget(long timeoutNanos, long maxOps)
+    {
+        if (timeoutNanos <= 0 || maxOps <= 0)
+        {
+            throw new IllegalArgumentException("Budget must be positive: " + timeoutNanos + "ns, " + maxOps + " ops");
+        }
+        this.timeoutNanos = timeoutNanos;
+        this.maxOps = maxOps;
+    }
+
+    /* A time limit only */
+    public static SolveBudget nanos(long timeoutNanos)
+    {
+        return new SolveBudget(timeoutNanos, Long.MAX_VALUE);
+    }
+
+    /* An operation limit only, the solve then does the same on every run */
+    public static SolveBudget ops(long maxOps)
+    {
+        return new SolveBudget(Long.MAX_VALUE, maxOps);
+    }
+
+    /* Start counting for a new solve */
+    void arm()
+    {
+        deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+        ops = 0;
+        exhausted = false;
+    }
+
+    /**
+     * Charge work done.
+     * @param count operations
+     * @return false once the budget is used up, the solver then stops
+     */
+    boolean spend(long count)
+    {
+        long before = ops;
+        ops += count;
+        if (ops > maxOps)
+        {
+            exhausted = true;
+        }
+        else if (deadline != Long.MAX_VALUE && (before / CLOCK_EVERY != ops / CLOCK_EVERY || count > CLOCK_EVERY)
+                && System.nanoTime() - deadline > 0)
+        {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    /* Operations left before the limit, at least 1 */
+    long remainingOps()
+    {
+        return Math.max(1, maxOps - ops);
+    }
+
+    /* System.nanoTime() of the deadline, Long.MAX_VALUE for none */
+    long deadline()
+    {
+        return deadline;
+    }
+
+    /* True if the last solve stopped at the limit */
+    public boolean exhausted()
+    {
+        return exhausted;
+    }
+
+    /* Operations the last solve took */
+    public long ops()
+    {
+        return ops;
+    }
+}
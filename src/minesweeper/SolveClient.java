@@ -0,0 +1,174 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/******************************************************************************
+ *  Client side of SolveServer, and a load generator for it.
+ *
+ *  A connection can pipeline: send() as many requests as it likes, then
+ *  receive() the answers as they come, matched by id. The load generator
+ *  runs several connections, each with a sender thread that keeps at most
+ *  window requests unanswered, and measures every request from the send
+ *  to its answer.
+ *
+ *  Execution:  java minesweeper.SolveClient [port] [boards] [connections]
+ *              [size] [density] [window] [heuristic|linear]
+ *  prints throughput and the latency histogram.
+ *
+ ******************************************************************************/
+
+public class SolveClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public SolveClient(int port) throws IOException
+    {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        SolveProtocol.writeHello(out);
+        out.flush();
+        SolveProtocol.readHello(in);
+    }
+
+    /* Queue a request, it goes out at the next flush() */
+    public void send(int id, Board mineMap, Solver solver, long seed, boolean moves) throws IOException
+    {
+        SolveProtocol.writeRequest(out, id, solver, moves, seed, mineMap);
+    }
+
+    public void flush() throws IOException
+    {
+        out.flush();
+    }
+
+    /* Next answer, in the order the server solved them */
+    public SolveProtocol.Response receive() throws IOException
+    {
+        return SolveProtocol.readResponse(in);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        socket.close();
+    }
+
+    /**
+     * Load a running server and report what it sustained.
+     * @param args [port] [boards] [connections] [size] [density] [window] [heuristic|linear]
+     */
+    public static void main(String[] args) throws Exception
+    {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : SolveServer.DEFAULT_PORT;
+        final int boards = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        double density = args.length > 4 ? Double.parseDouble(args[4]) : 0.25;
+        final int window = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+        final Solver solver = args.length > 6 ? Solver.named(args[6]) : Solver.HEURISTIC;
+
+        // a pool of boards to cycle through, so generating them is not part of the measurement
+        final Board[] pool = new Board[Math.min(boards, 1024)];
+        for (int k = 0; k < pool.length; k++)
+        {
+            pool[k] = MineGenerator.withDensity(size, size, density, new SplittableRandom(BatchRunner.gameSeed(1, k)), 2, 2);
+        }
+
+        final Metrics.Histogram latency = new Metrics.Histogram();
+        final AtomicLong wins = new AtomicLong();
+        final AtomicLong guesses = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>();
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++)
+        {
+            final int from = (int) ((long) boards * c / connections);
+            final int to = (int) ((long) boards * (c + 1) / connections);
+            Thread t = new Thread(() -> {
+                try
+                {
+                    load(port, pool, from, to, window, solver, latency, wins, guesses);
+                }
+                catch (IOException | InterruptedException e)
+                {
+                    throw new IllegalStateException("Load failed", e);
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d boards %dx%d p=%.2f over %d connections, window %d: %.0f boards/s%n",
+                boards, size, size, density, connections, window, boards / seconds);
+        System.out.printf("wins: %d guesses: %d%n", wins.get(), guesses.get());
+        System.out.printf("latency p50<=%.1fus p99<=%.1fus max=%.1fus%n",
+                latency.percentile(0.5) / 1e3, latency.percentile(0.99) / 1e3, latency.max() / 1e3);
+    }
+
+    /* Send boards [from, to) on one connection with at most window unanswered */
+    private static void load(int port, final Board[] pool, final int from, final int to, int window,
+            final Solver solver, Metrics.Histogram latency, AtomicLong wins, AtomicLong guesses)
+            throws IOException, InterruptedException
+    {
+        try (final SolveClient client = new SolveClient(port))
+        {
+            // send times, written by the sender and read here
+            final AtomicLongArray sent = new AtomicLongArray(to - from);
+            final Semaphore unanswered = new Semaphore(window);
+            Thread sender = new Thread(() -> {
+                try
+                {
+                    for (int id = from; id < to; id++)
+                    {
+                        if (!unanswered.tryAcquire())
+                        {
+                            // about to wait, let the queued requests go first
+                            client.flush();
+                            unanswered.acquire();
+                        }
+                        sent.set(id - from, System.nanoTime());
+                        client.send(id, pool[id % pool.length], solver, BatchRunner.gameSeed(2, id), false);
+                    }
+                    client.flush();
+                }
+                catch (IOException | InterruptedException e)
+                {
+                    throw new IllegalStateException("Send failed", e);
+                }
+            });
+            sender.start();
+
+            for (int k = from; k < to; k++)
+            {
+                SolveProtocol.Response response = client.receive();
+                latency.record(System.nanoTime() - sent.get(response.id() - from));
+                unanswered.release();
+                if (response.state() == Game.State.WON)
+                    wins.incrementAndGet();
+                guesses.addAndGet(response.guesses());
+            }
+            sender.join();
+        }
+    }
+}
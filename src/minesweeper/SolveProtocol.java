@@ -0,0 +1,227 @@
+package minesweeper;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/******************************************************************************
+ *  Binary wire format of SolveServer, big endian as written by
+ *  DataOutputStream.
+ *
+ *  Both sides open a connection with
+ *      int   magic    "MSSV"
+ *      short version  1
+ *  then the client sends requests and the server answers each one, in the
+ *  order they are solved (match them by id):
+ *
+ *  request
+ *      int   id       chosen by the client
+ *      byte  solver   0 heuristic, 1 linear
+ *      byte  flags    WANT_MOVES: answer with every move of the solve
+ *      long  seed     of the solver's random decisions
+ *      board          rows, cols, mines, mine bits (as in MineMapFile)
+ *  response
+ *      int   id
+ *      byte  state    Game.State ordinal: 0 playing, 1 won, 2 lost
+ *      int   guesses
+ *      long  nanos    solve time on the server
+ *      int   moves
+ *      int   move[moves]   type << 28 | flat index, type a SolverListener event
+ *
+ *  Only Response, what SolveClient.receive returns, is public.
+ *
+ ******************************************************************************/
+
+public final class SolveProtocol {
+
+    static final int MAGIC = 0x4D535356;
+    static final short VERSION = 1;
+    static final byte WANT_MOVES = 1;
+    /* largest board accepted, in squares of the flat layout */
+    static final int MAX_SQUARES = 1 << 26;
+
+    private static final Solver[] SOLVERS = {Solver.HEURISTIC, Solver.LINEAR};
+
+    private SolveProtocol()
+    {
+    }
+
+    static void writeHello(DataOutputStream out) throws IOException
+    {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    static void readHello(DataInputStream in) throws IOException
+    {
+        if (in.readInt() != MAGIC || in.readShort() != VERSION)
+        {
+            throw new IOException("not a solve server connection");
+        }
+    }
+
+    static byte solverCode(Solver solver)
+    {
+        for (int i = 0; i < SOLVERS.length; i++)
+        {
+            if (SOLVERS[i] == solver)
+                return (byte) i;
+        }
+        throw new IllegalArgumentException("solver " + solver.name() + " has no wire code");
+    }
+
+    static void writeRequest(DataOutputStream out, int id, Solver solver, boolean moves, long seed, Board mineMap)
+            throws IOException
+    {
+        ByteBuffer body = ByteBuffer.allocate((int) MineMapFile.bodyBytes(mineMap));
+        MineMapFile.writeBody(mineMap, body);
+        out.writeInt(id);
+        out.writeByte(solverCode(solver));
+        out.writeByte(moves ? WANT_MOVES : 0);
+        out.writeLong(seed);
+        out.write(body.array());
+    }
+
+    /* The next request, null at the end of the stream */
+    static Request readRequest(DataInputStream in) throws IOException
+    {
+        Request request = new Request();
+        try
+        {
+            request.id = in.readInt();
+        }
+        catch (EOFException e)
+        {
+            return null;
+        }
+        int solver = in.readByte();
+        if (solver < 0 || solver >= SOLVERS.length)
+        {
+            throw new IOException("request " + request.id + ": unknown solver " + solver);
+        }
+        request.solver = SOLVERS[solver];
+        request.moves = (in.readByte() & WANT_MOVES) != 0;
+        request.seed = in.readLong();
+
+        int rows = in.readInt();
+        int cols = in.readInt();
+        int mines = in.readInt();
+        if (rows <= 0 || cols <= 0 || (long) (rows + 2) * (cols + 2) > MAX_SQUARES)
+        {
+            throw new IOException("request " + request.id + ": board " + rows + "x" + cols);
+        }
+        byte[] body = new byte[12 + (int) MineMapFile.bitBytes(rows, cols)];
+        ByteBuffer.wrap(body).putInt(rows).putInt(cols).putInt(mines);
+        in.readFully(body, 12, body.length - 12);
+        request.mineMap = MineMapFile.readBody(ByteBuffer.wrap(body), "request " + request.id);
+        return request;
+    }
+
+    static void writeResponse(DataOutputStream out, int id, Game.State state, int guesses, long nanos,
+            int[] moves, int moveCount) throws IOException
+    {
+        out.writeInt(id);
+        out.writeByte(state.ordinal());
+        out.writeInt(guesses);
+        out.writeLong(nanos);
+        out.writeInt(moveCount);
+        for (int i = 0; i < moveCount; i++)
+        {
+            out.writeInt(moves[i]);
+        }
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException
+    {
+        int id = in.readInt();
+        int state = in.readByte();
+        if (state < 0 || state >= Game.State.values().length)
+        {
+            throw new IOException("response " + id + ": unknown state " + state);
+        }
+        int guesses = in.readInt();
+        long nanos = in.readLong();
+        int count = in.readInt();
+        if (count < 0)
+        {
+            throw new IOException("response " + id + ": " + count + " moves");
+        }
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            moves[i] = in.readInt();
+        }
+        return new Response(id, Game.State.values()[state], guesses, nanos, moves);
+    }
+
+    static final class Request
+    {
+        int id;
+        Solver solver;
+        boolean moves;
+        long seed;
+        Board mineMap;
+    }
+
+    /* The answer to one request */
+    public static final class Response
+    {
+        private final int id;
+        private final Game.State state;
+        private final int guesses;
+        private final long nanos;
+        private final int[] moves;
+
+        Response(int id, Game.State state, int guesses, long nanos, int[] moves)
+        {
+            this.id = id;
+            this.state = state;
+            this.guesses = guesses;
+            this.nanos = nanos;
+            this.moves = moves;
+        }
+
+        /* The id of the request */
+        public int id()
+        {
+            return id;
+        }
+
+        /* State of the game when the solve ended */
+        public Game.State state()
+        {
+            return state;
+        }
+
+        public int guesses()
+        {
+            return guesses;
+        }
+
+        /* Solve time on the server */
+        public long nanos()
+        {
+            return nanos;
+        }
+
+        /* Moves of the solve, empty unless the request asked for them */
+        public int moveCount()
+        {
+            return moves.length;
+        }
+
+        /* Type of move k, SolverListener.OPEN, FLAG or GUESS */
+        public int moveType(int k)
+        {
+            return moves[k] >>> 28;
+        }
+
+        /* Flat index of the square of move k */
+        public int moveIndex(int k)
+        {
+            return moves[k] & 0x0FFFFFFF;
+        }
+    }
+}
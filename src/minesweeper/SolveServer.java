@@ -0,0 +1,370 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/******************************************************************************
+ *  Solves boards sent by other processes over a loopback socket, in the
+ *  wire format of SolveProtocol.
+ *
+ *  Every connection has a reader thread. It takes a request, then every
+ *  request already waiting in the socket up to batchSize, and hands that
+ *  batch to a fixed pool of solver threads. Each solver thread keeps one
+ *  Game and resets it for every board, and answers a whole batch with one
+ *  write. At most maxBatches batches are queued or solving at a time: a
+ *  reader waits for a free permit before it reads on, so a client that
+ *  sends faster than the pool solves fills its socket buffer and blocks
+ *  instead of growing a queue here. (Java 8 has neither virtual threads
+ *  nor Unix domain sockets, the pool is bounded by hand and the socket is
+ *  TCP on the loopback address.)
+ *
+ *  Execution:  java minesweeper.SolveServer [port] [threads]
+ *  SolveClient is the matching load generator.
+ *
+ ******************************************************************************/
+
+public class SolveServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7391;
+
+    private final ServerSocket server;
+    private final ExecutorService pool;
+    private final Semaphore inFlight;
+    private final int batchSize;
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>();
+    private volatile boolean closed;
+
+    /**
+     * Listen on the loopback address, start() accepts connections.
+     * @param port 0 for any free port, see port()
+     * @param threads solver threads
+     * @param maxBatches batches queued or solving before readers wait
+     * @param batchSize most requests solved as one batch
+     * @throws IOException
+     */
+    public SolveServer(int port, int threads, int maxBatches, int batchSize) throws IOException
+    {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.inFlight = new Semaphore(maxBatches);
+        this.batchSize = batchSize;
+    }
+
+    public int port()
+    {
+        return server.getLocalPort();
+    }
+
+    /* Accept connections on a background thread until close */
+    public void start()
+    {
+        Thread acceptor = new Thread(this::accept, "solve-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        server.close();
+        pool.shutdown();
+    }
+
+    private void accept()
+    {
+        while (!closed)
+        {
+            try
+            {
+                final Socket socket = server.accept();
+                Thread reader = new Thread(() -> serve(socket), "solve-connection");
+                reader.setDaemon(true);
+                reader.start();
+            }
+            catch (IOException e)
+            {
+                if (!closed)
+                    System.out.println("solve server: " + e.getMessage());
+            }
+        }
+    }
+
+    /* Read batches off one connection until the client closes it, then wait for its answers */
+    private void serve(Socket socket)
+    {
+        Connection connection = null;
+        try
+        {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            SolveProtocol.readHello(in);
+            SolveProtocol.writeHello(out);
+            out.flush();
+            connection = new Connection(socket, out);
+
+            SolveProtocol.Request request;
+            IOException failed = null;
+            while (failed == null && (request = SolveProtocol.readRequest(in)) != null)
+            {
+                final List<SolveProtocol.Request> batch = new ArrayList<SolveProtocol.Request>();
+                batch.add(request);
+                try
+                {
+                    while (batch.size() < batchSize && in.available() > 0
+                            && (request = SolveProtocol.readRequest(in)) != null)
+                    {
+                        batch.add(request);
+                    }
+                }
+                catch (IOException e)
+                {
+                    // the requests read before the bad one are still answered
+                    failed = e;
+                }
+
+                // backpressure: no more reading while maxBatches are queued or solving
+                inFlight.acquire();
+                connection.started();
+                final Connection to = connection;
+                pool.execute(() -> {
+                    try
+                    {
+                        solve(batch, to);
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                        to.finished();
+                    }
+                });
+            }
+            if (failed != null)
+                throw failed;
+        }
+        catch (IOException e)
+        {
+            if (!closed)
+                System.out.println("solve server: " + e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            if (connection != null)
+                connection.awaitIdle();
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // closing anyway
+            }
+        }
+    }
+
+    /**
+     * Solve a batch on this pool thread and answer it with one write. A batch that fails
+     * with anything but a broken connection closes the connection, so the client reads
+     * EOF instead of waiting for answers that never come, and the thread gets a new Worker.
+     */
+    private void solve(List<SolveProtocol.Request> batch, Connection connection)
+    {
+        Worker worker = workers.get();
+        if (worker == null)
+        {
+            worker = new Worker();
+            workers.set(worker);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * batch.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        try
+        {
+            for (SolveProtocol.Request request : batch)
+            {
+                worker.moves.clear();
+                long start = System.nanoTime();
+                Game game = worker.play(request);
+                long nanos = System.nanoTime() - start;
+                SolveProtocol.writeResponse(out, request.id, game.state(), game.getGuessCount(), nanos,
+                        worker.moves.moves, request.moves ? worker.moves.size : 0);
+            }
+            connection.write(bytes);
+        }
+        catch (IOException e)
+        {
+            if (!closed)
+                System.out.println("solve server: " + e.getMessage());
+        }
+        catch (RuntimeException | Error e)
+        {
+            workers.remove();
+            connection.abort();
+            System.out.println("solve server: batch failed, " + e);
+        }
+    }
+
+    /* The game and move log a pool thread reuses for every board */
+    private static final class Worker
+    {
+        Game game;
+        final MoveLog moves = new MoveLog();
+
+        Game play(SolveProtocol.Request request)
+        {
+            SplittableRandom rand = new SplittableRandom(request.seed);
+            if (game == null)
+                game = new Game(request.mineMap, rand);
+            else
+                game.reset(request.mineMap, rand);
+            game.setListener(request.moves ? moves : SolverListener.NONE);
+            game.solve(request.solver);
+            return game;
+        }
+    }
+
+    /* Moves of one solve as type << 28 | index */
+    private static final class MoveLog implements SolverListener
+    {
+        int[] moves = new int[256];
+        int size;
+
+        void clear()
+        {
+            size = 0;
+        }
+
+        private void add(int type, int index)
+        {
+            if (size == moves.length)
+                moves = Arrays.copyOf(moves, size * 2);
+            moves[size++] = type << 28 | index;
+        }
+
+        @Override
+        public void opened(int index, int count)
+        {
+            add(OPEN, index);
+        }
+
+        @Override
+        public void flagged(int index)
+        {
+            add(FLAG, index);
+        }
+
+        @Override
+        public void guessed(int index)
+        {
+            add(GUESS, index);
+        }
+    }
+
+    /* Output side of a connection, shared by the batches in flight on it */
+    private static final class Connection
+    {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private int batches;
+        private volatile boolean broken;
+
+        Connection(Socket socket, DataOutputStream out)
+        {
+            this.socket = socket;
+            this.out = out;
+        }
+
+        synchronized void started()
+        {
+            batches++;
+        }
+
+        synchronized void finished()
+        {
+            batches--;
+            notifyAll();
+        }
+
+        synchronized void write(ByteArrayOutputStream bytes) throws IOException
+        {
+            if (broken)
+                return;
+            try
+            {
+                bytes.writeTo(out);
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                broken = true;
+                throw e;
+            }
+        }
+
+        /* Drop the connection after a failed batch, not waiting for a write in progress */
+        void abort()
+        {
+            broken = true;
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // closing anyway
+            }
+        }
+
+        /* Wait until every batch of the connection is answered */
+        synchronized void awaitIdle()
+        {
+            boolean interrupted = false;
+            while (batches > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a server until the process is killed.
+     * @param args [port] [threads]
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SolveServer server = new SolveServer(port, threads, 4 * threads, 64);
+        System.out.println("solve server on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.port() + ", " + threads + " threads");
+        server.accept();
+    }
+}
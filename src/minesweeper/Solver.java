@@ -0,0 +1,36 @@
+package minesweeper;
+
+/******************************************************************************
+ *  A solver backend: plays a started game until no close square is left
+ *  or a square it opened was a mine. Game.solve runs any of them,
+ *  Minesweeper.solution the one set with setSolver, so backends can be
+ *  swapped and compared on the same boards and the same seeds.
+ *
+ *  HEURISTIC is the worklist, pairwise and frontier enumeration pipeline
+ *  of reduceMine, LINEAR deduces with Gaussian elimination (LinearSolver).
+ *  Both are stateless and can be shared between games and threads.
+ *
+ ******************************************************************************/
+
+public interface Solver {
+
+    Solver HEURISTIC = new HeuristicSolver();
+    Solver LINEAR = new LinearSolver();
+
+    /* Open and flag squares of game until no CLOSE square is left or one opened was a mine */
+    void solve(Game game);
+
+    /* Short name, as accepted by named */
+    String name();
+
+    /* The backend called name, "heuristic" or "linear" */
+    static Solver named(String name)
+    {
+        for (Solver solver : new Solver[] {HEURISTIC, LINEAR})
+        {
+            if (solver.name().equalsIgnoreCase(name))
+                return solver;
+        }
+        throw new IllegalArgumentException("Unknown solver: " + name);
+    }
+}
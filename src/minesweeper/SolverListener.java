@@ -0,0 +1,49 @@
+package minesweeper;
+
+/******************************************************************************
+ *  Receives what the solver does, as primitive events with flat board
+ *  indexes (see Board.index). Every method defaults to doing nothing and
+ *  NONE is the listener a game starts with, so an untraced solve pays one
+ *  virtual call per event and builds no strings.
+ *
+ *  RingTrace keeps the last events in memory, FileTrace streams them to a
+ *  file.
+ *
+ ******************************************************************************/
+
+public interface SolverListener {
+
+    /* event types, as stored by the trace sinks */
+    int OPEN = 1;
+    int FLAG = 2;
+    int GUESS = 3;
+    int ROUND = 4;
+    int END = 5;
+
+    SolverListener NONE = new SolverListener() { };
+
+    /* The solver opened square index, count squares were opened including the flood fill */
+    default void opened(int index, int count)
+    {
+    }
+
+    /* The solver flagged square index as a mine */
+    default void flagged(int index)
+    {
+    }
+
+    /* The solver ran out of deductions and opens square index, the one it rates least likely to be a mine */
+    default void guessed(int index)
+    {
+    }
+
+    /* A new round of deductions starts, round 0 is the first one */
+    default void round(int round)
+    {
+    }
+
+    /* The game is over */
+    default void finished(boolean won)
+    {
+    }
+}
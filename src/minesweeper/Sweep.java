@@ -0,0 +1,392 @@
+package minesweeper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/******************************************************************************
+ *  Win rates over a grid of board sizes, mine densities and solvers, each
+ *  sampled only until its confidence interval is narrow enough.
+ *
+ *  The cells of the grid run one after the other, each spread over all
+ *  workers of a BatchRunner. A cell plays in batches that double its
+ *  games, minGames, 2 minGames, 4 minGames and so on up to maxGames.
+ *  After every batch the Wilson interval of its win rate is computed, and
+ *  the cell stops once the half width is at most halfWidth or maxGames are
+ *  played. A cell with a win rate near 0 or 1 stops after a few hundred
+ *  games instead of the thousands one near 0.5 needs.
+ *
+ *  Stopping at the first narrow interval looks at the data up to
+ *  looks() = log2(maxGames / minGames) + 1 times, and a 95% interval
+ *  checked that often covers the true rate less than 95% of the time.
+ *  Every interval therefore uses the Bonferroni quantile: the 5% error is
+ *  split evenly over the looks, z = 2.84 instead of 1.96 at the default
+ *  200 to 200000 games, so the interval a cell stops with covers the true
+ *  rate at least 95% of the time. The price is about twice the games.
+ *
+ *  Every batch appends a CSV row with the running totals of its cell, and
+ *  a finished cell ends with done = 1. The file is flushed row by row. Game
+ *  k of a cell always gets the same seed, so an interrupted sweep started
+ *  again on the same file picks every cell up where its last row left it,
+ *  and skips the cells the current halfWidth counts as finished. The rows
+ *  of a cell are the same as an uninterrupted run would have written.
+ *
+ *  Execution:  java minesweeper.Sweep results.csv [sizes] [densities]
+ *              [solvers] [halfWidth] [threads] [seed]
+ *  sizes like 8,12,16x30 (rows x columns, one number for a square),
+ *  densities like 0.1,0.15,0.2, solvers like heuristic,linear.
+ *
+ ******************************************************************************/
+
+public class Sweep {
+
+    public static final String HEADER = "rows,cols,density,solver,seed,games,wins,losses,guesses,win_rate,low,high,done";
+
+    /* coverage of the interval a cell stops with */
+    private static final double CONFIDENCE = 0.95;
+
+    private final int threads;
+    private final long seed;
+    private double halfWidth = 0.01;
+    private int minGames = 200;
+    private int maxGames = 200000;
+    private PrintStream progress;
+
+    /**
+     * @param threads workers per cell
+     * @param seed base seed, every cell plays the same game numbers with it
+     */
+    public Sweep(int threads, long seed)
+    {
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /* Stop a cell once its 95% interval is at most this wide on either side, 0.01 unless set */
+    public void setHalfWidth(double halfWidth)
+    {
+        this.halfWidth = halfWidth;
+    }
+
+    /**
+     * @param minGames first batch of every cell, 200 unless set
+     * @param maxGames a cell stops here even if the interval is still wide, 200000 unless set
+     */
+    public void setGames(int minGames, int maxGames)
+    {
+        this.minGames = minGames;
+        this.maxGames = maxGames;
+    }
+
+    /* Print a summary line per cell to progress, nothing unless set */
+    public void setProgress(PrintStream progress)
+    {
+        this.progress = progress;
+    }
+
+    /**
+     * Run every cell of the grid that results does not hold as done yet, appending its rows.
+     * @param results CSV file, created with a header if missing
+     * @param sizes {rows, cols} per board size
+     * @param densities mine probabilities
+     * @param solvers backends
+     * @throws IOException
+     */
+    public void run(Path results, List<int[]> sizes, double[] densities, List<Solver> solvers) throws IOException
+    {
+        Map<String, Cell> previous = load(results);
+        try (BufferedWriter out = open(results))
+        {
+            for (int[] size : sizes)
+            {
+                for (double p : densities)
+                {
+                    for (Solver solver : solvers)
+                    {
+                        Cell cell = new Cell(size[0], size[1], p, solver.name(), seed);
+                        Cell last = previous.get(cell.key());
+                        if (last != null)
+                        {
+                            // judged by the current settings, a narrower halfWidth samples a finished cell on
+                            cell = last;
+                            cell.done = finished(cell);
+                        }
+                        if (cell.done)
+                        {
+                            report(cell.describe(z()) + " (done before)");
+                            continue;
+                        }
+                        sample(cell, solver, out);
+                        report(cell.describe(z()));
+                    }
+                }
+            }
+        }
+    }
+
+    private void report(String line)
+    {
+        if (progress != null)
+            progress.println(line);
+    }
+
+    /* Play batches of one cell until its interval is narrow enough, one row per batch */
+    private void sample(Cell cell, Solver solver, BufferedWriter out) throws IOException
+    {
+        try (BatchRunner runner = new BatchRunner(cell.rows, cell.cols, cell.density, threads))
+        {
+            runner.setSolver(solver);
+            double z = z();
+            while (!cell.done)
+            {
+                int from = (int) cell.games;
+                int to = nextLook(from);
+                BatchRunner.Report report = runner.run(from, to, cell.seed);
+                cell.games += report.games;
+                cell.wins += report.wins;
+                cell.losses += report.losses;
+                cell.guesses += report.guesses;
+                cell.done = finished(cell);
+                out.write(cell.row(z));
+                out.newLine();
+                out.flush();
+            }
+        }
+    }
+
+    private boolean finished(Cell cell)
+    {
+        return cell.games >= maxGames || halfWidth(cell.wins, cell.games, z()) <= halfWidth;
+    }
+
+    /* Games after the next look: the first of minGames, 2 minGames, 4 minGames... past games, at most maxGames */
+    private int nextLook(long games)
+    {
+        long look = minGames;
+        while (look <= games)
+        {
+            look *= 2;
+        }
+        return (int) Math.min(maxGames, look);
+    }
+
+    /* Times a cell looks at its interval at most */
+    int looks()
+    {
+        int looks = 0;
+        for (long games = 0; games < maxGames; games = nextLook(games))
+        {
+            looks++;
+        }
+        return looks;
+    }
+
+    /* Normal quantile of the interval, CONFIDENCE split over the looks */
+    double z()
+    {
+        return normalQuantile(1 - (1 - CONFIDENCE) / (2 * looks()));
+    }
+
+    /* Middle of the Wilson interval */
+    static double center(long wins, long games, double z)
+    {
+        double p = (double) wins / games;
+        double z2 = z * z / games;
+        return (p + z2 / 2) / (1 + z2);
+    }
+
+    /* Half width of the Wilson interval */
+    static double halfWidth(long wins, long games, double z)
+    {
+        double p = (double) wins / games;
+        double z2 = z * z / games;
+        return z / (1 + z2) * Math.sqrt(p * (1 - p) / games + z2 / (4 * games));
+    }
+
+    /**
+     * Inverse of the standard normal distribution function, Acklam's rational approximation
+     * with a relative error below 1.2e-9.
+     * @param p probability, 0 < p < 1
+     */
+    static double normalQuantile(double p)
+    {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        if (p < 0.02425)
+        {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - 0.02425)
+        {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /* Last row of every cell in results, rows cut off by an interrupted write are skipped */
+    private static Map<String, Cell> load(Path results) throws IOException
+    {
+        Map<String, Cell> cells = new HashMap<String, Cell>();
+        if (!Files.exists(results))
+            return cells;
+        for (String line : Files.readAllLines(results, StandardCharsets.UTF_8))
+        {
+            Cell cell = Cell.parse(line);
+            if (cell != null)
+                cells.put(cell.key(), cell);
+        }
+        return cells;
+    }
+
+    /* Open results for appending, with a header if it is new and a line break if its last row was cut off */
+    private static BufferedWriter open(Path results) throws IOException
+    {
+        boolean fresh = !Files.exists(results) || Files.size(results) == 0;
+        boolean cut = false;
+        if (!fresh)
+        {
+            byte[] bytes = Files.readAllBytes(results);
+            cut = bytes[bytes.length - 1] != '\n';
+        }
+        BufferedWriter out = Files.newBufferedWriter(results, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh)
+        {
+            out.write(HEADER);
+            out.newLine();
+        }
+        else if (cut)
+        {
+            out.newLine();
+        }
+        out.flush();
+        return out;
+    }
+
+    /* One grid cell and its running totals, as in a row of the results */
+    private static final class Cell
+    {
+        final int rows;
+        final int cols;
+        final double density;
+        final String solver;
+        final long seed;
+        long games;
+        long wins;
+        long losses;
+        long guesses;
+        boolean done;
+
+        Cell(int rows, int cols, double density, String solver, long seed)
+        {
+            this.rows = rows;
+            this.cols = cols;
+            this.density = density;
+            this.solver = solver;
+            this.seed = seed;
+        }
+
+        String key()
+        {
+            return rows + "," + cols + "," + density + "," + solver + "," + seed;
+        }
+
+        String row(double z)
+        {
+            double half = halfWidth(wins, games, z);
+            double center = center(wins, games, z);
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.6f,%.6f,%.6f,%d", key(), games, wins, losses,
+                    guesses, (double) wins / games, Math.max(0, center - half), Math.min(1, center + half),
+                    done ? 1 : 0);
+        }
+
+        String describe(double z)
+        {
+            return String.format(Locale.ROOT, "%dx%d p=%.3f %s: %d games, win rate %.4f +- %.4f", rows, cols,
+                    density, solver, games, (double) wins / games, halfWidth(wins, games, z));
+        }
+
+        /* The cell of a results row, null for the header or a broken row */
+        static Cell parse(String line)
+        {
+            String[] f = line.split(",");
+            if (f.length != 13)
+                return null;
+            try
+            {
+                Cell cell = new Cell(Integer.parseInt(f[0]), Integer.parseInt(f[1]), Double.parseDouble(f[2]), f[3],
+                        Long.parseLong(f[4]));
+                cell.games = Long.parseLong(f[5]);
+                cell.wins = Long.parseLong(f[6]);
+                cell.losses = Long.parseLong(f[7]);
+                cell.guesses = Long.parseLong(f[8]);
+                cell.done = f[12].equals("1");
+                return cell.games > 0 ? cell : null;
+            }
+            catch (NumberFormatException e)
+            {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Usage: java Sweep results.csv [sizes] [densities] [solvers] [halfWidth] [threads] [seed]
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.out.println("Usage: java minesweeper.Sweep results.csv [sizes] [densities] [solvers] [halfWidth] [threads] [seed]");
+            return;
+        }
+        Path results = Paths.get(args[0]);
+        List<int[]> sizes = new ArrayList<int[]>();
+        for (String size : (args.length > 1 ? args[1] : "8,12,16,24,30").split(","))
+        {
+            String[] rc = size.split("x");
+            int rows = Integer.parseInt(rc[0]);
+            sizes.add(new int[] {rows, rc.length > 1 ? Integer.parseInt(rc[1]) : rows});
+        }
+        String[] ps = (args.length > 2 ? args[2] : "0.1,0.15,0.2,0.25").split(",");
+        double[] densities = new double[ps.length];
+        for (int i = 0; i < ps.length; i++)
+        {
+            densities[i] = Double.parseDouble(ps[i]);
+        }
+        List<Solver> solvers = new ArrayList<Solver>();
+        for (String name : (args.length > 3 ? args[3] : "heuristic").split(","))
+        {
+            solvers.add(Solver.named(name));
+        }
+        double halfWidth = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+
+        Sweep sweep = new Sweep(threads, seed);
+        sweep.setHalfWidth(halfWidth);
+        sweep.setProgress(System.out);
+        sweep.run(results, sizes, densities, solvers);
+    }
+}
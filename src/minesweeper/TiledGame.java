@@ -0,0 +1,947 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/******************************************************************************
+ *  A game on a board too big for a flat Board, kept as TILE x TILE tiles
+ *  that only exist while the solver works on them.
+ *
+ *  Mines are not stored: whether (x, y) is a mine is a hash of the seed,
+ *  the coordinates of its tile and its place in the tile, so any square
+ *  can be asked at any time and the same seed always gives the same
+ *  board. A tile is materialized (its game layer as bytes) when the flood
+ *  fill or the solver first touches it, and at most maxTiles stay
+ *  resident, the least recently used one is evicted. An evicted tile
+ *  keeps only what can not be recomputed from the mines: nothing if it
+ *  was never opened, one bit in solved if every square is open or
+ *  flagged, otherwise its open and flag bits. Memory is bounded by
+ *  maxTiles and the partly solved tiles, not by the size of the board.
+ *
+ *  The solver is the single square rule of Game, plus a guess in the
+ *  first unsolved tile in row order when it is stuck. Its worklist is kept
+ *  per tile, a bit per queued square and a bit per tile in pending, and
+ *  the lowest pending tile is always drained first, so the frontier sweeps
+ *  the board as one band instead of wandering. Blanks are queued like
+ *  numbers (a blank with nothing flagged around opens its neighbours),
+ *  which makes the flood fill part of the same sweep and leaves no stack
+ *  as big as a blank region. (0, 0) is never a mine and is opened first.
+ *  With survive set a guessed mine is flagged and counted instead of
+ *  ending the game, so a huge board can be solved to its end; the game
+ *  still ends LOST if it exploded anything.
+ *
+ *  solve(pool) drains the worklist in bulk-synchronous rounds instead, one
+ *  fork-join task per pending tile (see TileTask). The single square rule
+ *  reaches the same fixed point in any order and guesses are only made
+ *  between rounds, on that fixed point, so both end the game the same way.
+ *  From one click the work is a frontier crossing the board, and a round
+ *  only has the one or two tiles the frontier is in: on 1000x1000 about 4
+ *  tasks a round, too few to pay for the rounds on any number of cores.
+ *  setSeeded gives every tile a safe first square (its top left corner),
+ *  which changes the board but lets a round start up to maxTiles / 9
+ *  tiles at once. Seeds are opened lazily, lowest tile first, whenever
+ *  the worklist runs short, and always before any guess. After the first
+ *  guess the frontier is narrow again, every guess starts a short chain
+ *  of rounds, so setGuessBatch lets one stall guess in that many
+ *  unsolved tiles instead of one. Both settings give a seeded, batched
+ *  game that still ends the same way on one thread and on a pool.
+ *
+ *  Not thread safe, one thread per game (which may hand rounds to a pool).
+ *
+ ******************************************************************************/
+
+public class TiledGame {
+
+    public static final int SHIFT = 6;
+    public static final int TILE = 1 << SHIFT;
+
+    private static final int MASK = TILE - 1;
+    private static final int WORDS = TILE * TILE / 64;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    /* what a TileTask asks of a square of another tile */
+    private static final byte OPEN = 0;
+    private static final byte FLAG = 1;
+    private static final byte QUEUE = 2;
+
+    private final int rows;
+    private final int cols;
+    private final double density;
+    private final long seed;
+    /* a square is a mine when the top 53 bits of its hash are below this */
+    private final long threshold;
+    private final int tileCols;
+    private final int tileCount;
+    private final int maxTiles;
+
+    /* resident tiles by id, in access order */
+    private final LinkedHashMap<Integer, Tile> resident;
+    /* open and flag bits of evicted, partly solved tiles */
+    private final HashMap<Integer, long[]> spilled = new HashMap<Integer, long[]>();
+    /* tiles with no close square left, and tiles with queued squares */
+    private final BitSet solved;
+    private final BitSet pending;
+    private Tile last;
+
+    /* no tile below it is unsolved */
+    private int cursor;
+
+    private Game.State state = Game.State.PLAYING;
+    private boolean survive;
+    private boolean seeded;
+    private int guessBatch = 1;
+    /* tiles below it have their seed opened */
+    private int nextSeed;
+
+    private long opened;
+    private long flags;
+    private long guesses;
+    private long exploded;
+    private long materialized;
+    private long evicted;
+    private int peakResident;
+    /* parallel rounds and the tile tasks they ran */
+    private long rounds;
+    private long tasksRun;
+
+    /**
+     * @param rows
+     * @param cols
+     * @param p probability of mine
+     * @param seed the mines are a function of seed alone
+     * @param maxTiles tiles kept resident, at least 4 (a 3x3 scan can touch 4 tiles)
+     */
+    public TiledGame(int rows, int cols, double p, long seed, int maxTiles)
+    {
+        int tileRows = (rows + MASK) >> SHIFT;
+        tileCols = (cols + MASK) >> SHIFT;
+        if (rows <= 0 || cols <= 0 || (long) tileRows * tileCols > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("board " + rows + "x" + cols);
+        }
+        if (maxTiles < 4)
+        {
+            throw new IllegalArgumentException("maxTiles " + maxTiles);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.density = p;
+        this.seed = seed;
+        this.threshold = (long) (Math.min(1.0, Math.max(0.0, p)) * (1L << 53));
+        this.tileCount = tileRows * tileCols;
+        this.maxTiles = maxTiles;
+        this.solved = new BitSet(tileCount);
+        this.pending = new BitSet(tileCount);
+        this.resident = new LinkedHashMap<Integer, Tile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Tile> eldest)
+            {
+                if (size() <= TiledGame.this.maxTiles)
+                {
+                    return false;
+                }
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /* A guessed mine is flagged and counted in exploded() instead of losing the game */
+    public void setSurvive(boolean survive)
+    {
+        this.survive = survive;
+    }
+
+    /**
+     * Give every tile a safe top left square and open them all, before any guess. This is a
+     * different board than without, call it before solving.
+     * @param seeded
+     */
+    public void setSeeded(boolean seeded)
+    {
+        this.seeded = seeded;
+    }
+
+    /* Guess in up to this many unsolved tiles when the deductions are stuck, 1 unless set */
+    public void setGuessBatch(int guessBatch)
+    {
+        this.guessBatch = Math.max(1, guessBatch);
+    }
+
+    /* True if (x, y) is a mine, a function of the seed, the tile of the square and its place in it */
+    boolean mineAt(int x, int y)
+    {
+        if (x == 0 && y == 0 || seeded && (x & MASK) == 0 && (y & MASK) == 0)
+        {
+            return false;
+        }
+        long h = mix(seed ^ mix(((long) (x >> SHIFT) << 32) | (y >> SHIFT)));
+        h = mix(h + GOLDEN * (local(x, y) + 1));
+        return (h >>> 11) < threshold;
+    }
+
+    /* Mines around (x, y) */
+    private int count(int x, int y)
+    {
+        int n = 0;
+        for (int i = x - 1; i <= x + 1; i++)
+        {
+            for (int j = y - 1; j <= y + 1; j++)
+            {
+                if ((i != x || j != y) && inside(i, j) && mineAt(i, j))
+                    n++;
+            }
+        }
+        return n;
+    }
+
+    /* Game layer value of (x, y): CLOSE, 0-8 opened, MINE flagged, WALL outside the board */
+    public byte square(int x, int y)
+    {
+        if (!inside(x, y))
+        {
+            return Board.WALL;
+        }
+        return tile(x, y).game[local(x, y)];
+    }
+
+    /* Open a CLOSE square, its neighbours follow through the worklist if it is blank. Return false for a mine */
+    private boolean open(int x, int y)
+    {
+        if (state != Game.State.PLAYING || square(x, y) != Board.CLOSE)
+        {
+            return true;
+        }
+        if (!mineAt(x, y))
+        {
+            reveal(x, y);
+            return true;
+        }
+        if (survive)
+        {
+            exploded++;
+            flag(x, y);
+        }
+        else
+        {
+            state = Game.State.LOST;
+        }
+        return false;
+    }
+
+    private void flag(int x, int y)
+    {
+        if (square(x, y) == Board.CLOSE)
+        {
+            set(tile(x, y), local(x, y), Board.MINE);
+            flags++;
+            markDirty(x, y);
+        }
+    }
+
+    /* Open (0, 0), then deduce and guess until the game is over */
+    public void solve()
+    {
+        play(null);
+    }
+
+    /**
+     * solve() with the deductions made on pool, tile by tile in rounds. The game ends exactly
+     * as solve() ends it.
+     * @param pool
+     */
+    public void solve(ForkJoinPool pool)
+    {
+        if (maxTiles < 9)
+        {
+            throw new IllegalStateException("a parallel solve needs maxTiles >= 9");
+        }
+        play(pool);
+    }
+
+    private void play(ForkJoinPool pool)
+    {
+        nextSeed = seeded ? 0 : tileCount;
+        open(0, 0);
+        while (state == Game.State.PLAYING)
+        {
+            if (pool == null)
+            {
+                drainWorklist();
+            }
+            else
+            {
+                openSeeds(maxTiles / 9);
+                while (!pending.isEmpty())
+                {
+                    round(pool);
+                    openSeeds(maxTiles / 9);
+                }
+            }
+            if (state != Game.State.PLAYING)
+            {
+                break;
+            }
+            if (nextSeed < tileCount)
+            {
+                openSeeds(1);
+                continue;
+            }
+            cursor = solved.nextClearBit(cursor);
+            if (cursor >= tileCount)
+            {
+                state = ended();
+                break;
+            }
+            // tiles guessed in one batch are taken in order, all on the same fixed point
+            int id = cursor;
+            for (int g = 0; g < guessBatch && id < tileCount && state == Game.State.PLAYING; g++)
+            {
+                guess(id);
+                id = solved.nextClearBit(id + 1);
+            }
+        }
+    }
+
+    /* Open seeds until tiles pending work reach want or no seed is left */
+    private void openSeeds(int want)
+    {
+        while (nextSeed < tileCount && pending.cardinality() < want && state == Game.State.PLAYING)
+        {
+            int id = nextSeed++;
+            if (!solved.get(id))
+                open((id / tileCols) << SHIFT, (id % tileCols) << SHIFT);
+        }
+    }
+
+    /* State of a game with no close square left */
+    private Game.State ended()
+    {
+        return exploded > 0 ? Game.State.LOST : Game.State.WON;
+    }
+
+    public Game.State state()
+    {
+        if (state == Game.State.PLAYING && solved.nextClearBit(cursor) >= tileCount)
+        {
+            state = ended();
+        }
+        return state;
+    }
+
+    public int rows()
+    {
+        return rows;
+    }
+
+    public int cols()
+    {
+        return cols;
+    }
+
+    public long opened()
+    {
+        return opened;
+    }
+
+    public long flags()
+    {
+        return flags;
+    }
+
+    public long guesses()
+    {
+        return guesses;
+    }
+
+    public long exploded()
+    {
+        return exploded;
+    }
+
+    public int residentTiles()
+    {
+        return resident.size();
+    }
+
+    public int peakResident()
+    {
+        return peakResident;
+    }
+
+    public int spilledTiles()
+    {
+        return spilled.size();
+    }
+
+    public long materialized()
+    {
+        return materialized;
+    }
+
+    public long evicted()
+    {
+        return evicted;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "tiled " + rows + "x" + cols + " " + state + " opened: " + opened + " flags: " + flags
+                + " guesses: " + guesses + " exploded: " + exploded + " tiles: " + materialized
+                + " evicted: " + evicted + " peak resident: " + peakResident + " spilled: " + spilled.size()
+                + (rounds > 0 ? " rounds: " + rounds + " tasks: " + tasksRun : "");
+    }
+
+    /* Open a CLOSE square known to be safe, queue it and the numbers around it */
+    private void reveal(int x, int y)
+    {
+        byte n = (byte) count(x, y);
+        Tile t = tile(x, y);
+        set(t, local(x, y), n);
+        opened++;
+        queue(t, local(x, y));
+        markDirty(x, y);
+    }
+
+    private void set(Tile t, int k, byte value)
+    {
+        t.game[k] = value;
+        if (--t.closed == 0)
+        {
+            solved.set(t.id);
+        }
+    }
+
+    /* Queue the numbers around a square that changed */
+    private void markDirty(int x, int y)
+    {
+        for (int i = x - 1; i <= x + 1; i++)
+        {
+            for (int j = y - 1; j <= y + 1; j++)
+            {
+                byte v = square(i, j);
+                if (v > Board.BLANK && v < Board.MINE)
+                    queue(tile(i, j), local(i, j));
+            }
+        }
+    }
+
+    private void queue(Tile t, int k)
+    {
+        t.queued[k >> 6] |= 1L << k;
+        pending.set(t.id);
+    }
+
+    /* Single square rule on every queued square, lowest pending tile first, until nothing is queued */
+    private void drainWorklist()
+    {
+        int id;
+        while ((id = pending.nextSetBit(0)) >= 0 && state == Game.State.PLAYING)
+        {
+            int x0 = (id / tileCols) << SHIFT;
+            int y0 = (id % tileCols) << SHIFT;
+            // fetched again every time, checking a square can evict it
+            Tile t = tile(x0, y0);
+            int k = firstQueued(t);
+            if (k < 0)
+            {
+                pending.clear(id);
+                continue;
+            }
+            t.queued[k >> 6] &= ~(1L << k);
+            check(x0 + (k >> SHIFT), y0 + (k & MASK), t.game[k]);
+        }
+    }
+
+    private static int firstQueued(Tile t)
+    {
+        for (int w = 0; w < WORDS; w++)
+        {
+            if (t.queued[w] != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(t.queued[w]);
+        }
+        return -1;
+    }
+
+    /* Open the close squares around an opened square if its number is met, flag them if it needs them all */
+    private void check(int x, int y, int number)
+    {
+        int flagged = 0;
+        int close = 0;
+        for (int i = x - 1; i <= x + 1; i++)
+        {
+            for (int j = y - 1; j <= y + 1; j++)
+            {
+                byte v = square(i, j);
+                if (v == Board.MINE)
+                    flagged++;
+                else if (v == Board.CLOSE)
+                    close++;
+            }
+        }
+        if (close == 0 || (number != flagged && number - flagged != close))
+        {
+            return;
+        }
+        boolean safe = number == flagged;
+        for (int i = x - 1; i <= x + 1; i++)
+        {
+            for (int j = y - 1; j <= y + 1; j++)
+            {
+                if (safe)
+                    open(i, j);
+                else
+                    flag(i, j);
+            }
+        }
+    }
+
+    /**
+     * One bulk-synchronous round: a task per pending tile, at most maxTiles / 9 of them so
+     * their 3x3 neighbourhoods are resident together, then the squares the tasks left for
+     * other tiles are applied here, which queues those tiles for the next round.
+     */
+    private void round(ForkJoinPool pool)
+    {
+        final List<TileTask> tasks = new ArrayList<TileTask>();
+        for (int id = pending.nextSetBit(0); id >= 0 && tasks.size() < maxTiles / 9; id = pending.nextSetBit(id + 1))
+        {
+            tasks.add(new TileTask(id));
+        }
+        // tasks never materialize or evict, every tile they can touch is fetched here, before
+        // pending is cleared so a tile that was evicted comes back with its squares queued
+        for (TileTask task : tasks)
+        {
+            task.fetch();
+        }
+        for (TileTask task : tasks)
+        {
+            pending.clear(task.id);
+        }
+        rounds++;
+        tasksRun += tasks.size();
+        pool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+
+        for (TileTask task : tasks)
+        {
+            opened += task.opened;
+            flags += task.flagged;
+            if (task.near[4].closed == 0)
+            {
+                solved.set(task.id);
+            }
+        }
+        for (TileTask task : tasks)
+        {
+            for (int i = 0; i < task.size; i++)
+            {
+                int x = (int) (task.outbox[i] >> 32);
+                int y = (int) task.outbox[i];
+                if (task.ops[i] == OPEN)
+                    open(x, y);
+                else if (task.ops[i] == FLAG)
+                    flag(x, y);
+                else
+                    queue(tile(x, y), local(x, y));
+            }
+        }
+    }
+
+    /* Open the first close square of tile id whose local mine ratio is at most the density, else the lowest */
+    private void guess(int id)
+    {
+        int x0 = (id / tileCols) << SHIFT;
+        int y0 = (id % tileCols) << SHIFT;
+        Tile t = tile(x0, y0);
+        int best = -1;
+        double lowest = 2.0;
+        for (int k = t.next; k < TILE * TILE; k++)
+        {
+            if (t.game[k] != Board.CLOSE)
+            {
+                if (k == t.next)
+                    t.next++;
+                continue;
+            }
+            double risk = risk(x0 + (k >> SHIFT), y0 + (k & MASK));
+            if (risk < lowest)
+            {
+                lowest = risk;
+                best = k;
+            }
+            if (risk <= density)
+            {
+                break;
+            }
+        }
+        guesses++;
+        open(x0 + (best >> SHIFT), y0 + (best & MASK));
+    }
+
+    /* Mines missing over close squares of the worst number around (x, y), the density if none */
+    private double risk(int x, int y)
+    {
+        double worst = -1;
+        for (int i = x - 1; i <= x + 1; i++)
+        {
+            for (int j = y - 1; j <= y + 1; j++)
+            {
+                byte v = square(i, j);
+                if (v <= Board.BLANK || v >= Board.MINE)
+                    continue;
+                int missing = v;
+                int close = 0;
+                for (int a = i - 1; a <= i + 1; a++)
+                {
+                    for (int b = j - 1; b <= j + 1; b++)
+                    {
+                        byte w = square(a, b);
+                        if (w == Board.MINE)
+                            missing--;
+                        else if (w == Board.CLOSE)
+                            close++;
+                    }
+                }
+                worst = Math.max(worst, (double) missing / close);
+            }
+        }
+        return worst < 0 ? density : worst;
+    }
+
+    private Tile tile(int x, int y)
+    {
+        int id = (x >> SHIFT) * tileCols + (y >> SHIFT);
+        if (last != null && last.id == id)
+        {
+            return last;
+        }
+        Tile t = resident.get(id);
+        if (t == null)
+        {
+            t = materialize(id);
+            resident.put(id, t);
+            peakResident = Math.max(peakResident, resident.size());
+        }
+        last = t;
+        return t;
+    }
+
+    /* Rebuild the game layer of a tile from the mines and what eviction kept of it */
+    private Tile materialize(int id)
+    {
+        materialized++;
+        Tile t = new Tile(id);
+        int x0 = (id / tileCols) << SHIFT;
+        int y0 = (id % tileCols) << SHIFT;
+        boolean done = solved.get(id);
+        long[] bits = done ? null : spilled.remove(id);
+        // the queued bits did not survive eviction, queue every opened square again
+        boolean requeue = pending.get(id);
+        for (int k = 0; k < TILE * TILE; k++)
+        {
+            int x = x0 + (k >> SHIFT);
+            int y = y0 + (k & MASK);
+            if (!inside(x, y))
+            {
+                t.game[k] = Board.WALL;
+            }
+            else if (done)
+            {
+                t.game[k] = mineAt(x, y) ? Board.MINE : (byte) count(x, y);
+                if (requeue && t.game[k] != Board.MINE)
+                    t.queued[k >> 6] |= 1L << k;
+            }
+            else if (bits != null && (bits[k >> 6] & (1L << k)) != 0)
+            {
+                t.game[k] = (byte) count(x, y);
+                if (requeue)
+                    t.queued[k >> 6] |= 1L << k;
+            }
+            else if (bits != null && (bits[WORDS + (k >> 6)] & (1L << k)) != 0)
+            {
+                t.game[k] = Board.MINE;
+            }
+            else
+            {
+                t.game[k] = Board.CLOSE;
+                t.closed++;
+            }
+            if (inside(x, y))
+                t.squares++;
+        }
+        return t;
+    }
+
+    /* Keep the open and flag bits of a partly solved tile, nothing otherwise */
+    private void evict(Tile t)
+    {
+        evicted++;
+        if (last == t)
+        {
+            last = null;
+        }
+        if (t.closed == 0 || t.closed == t.squares)
+        {
+            return;
+        }
+        long[] bits = new long[2 * WORDS];
+        for (int k = 0; k < TILE * TILE; k++)
+        {
+            byte v = t.game[k];
+            if (v == Board.MINE)
+                bits[WORDS + (k >> 6)] |= 1L << k;
+            else if (v >= Board.BLANK)
+                bits[k >> 6] |= 1L << k;
+        }
+        spilled.put(t.id, bits);
+    }
+
+    private boolean inside(int x, int y)
+    {
+        return x >= 0 && y >= 0 && x < rows && y < cols;
+    }
+
+    private static long pack(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static int local(int x, int y)
+    {
+        return (x & MASK) << SHIFT | (y & MASK);
+    }
+
+    /* SplitMix64 finalizer */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /* Game layer of one tile, squares outside the board are WALL */
+    private static final class Tile
+    {
+        final int id;
+        final byte[] game = new byte[TILE * TILE];
+        /* opened squares on the worklist */
+        final long[] queued = new long[WORDS];
+        /* squares inside the board, and those still CLOSE */
+        int squares;
+        int closed;
+        /* no square below it is CLOSE */
+        int next;
+
+        Tile(int id)
+        {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Drains the worklist of one tile in a round. It only writes its own tile: opening or
+     * flagging a square of another tile, or queueing a number there, goes to the outbox and
+     * is applied after the round. It reads the squares around its tile while their own
+     * tasks may change them, which is sound: a square read as open or flagged is known for
+     * good, one read as CLOSE is at worst deduced again next round.
+     */
+    private final class TileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int id;
+        private final int tx;
+        private final int ty;
+        /* the 3x3 tiles around this one, null outside the board */
+        final Tile[] near = new Tile[9];
+        long[] outbox = new long[16];
+        byte[] ops = new byte[16];
+        int size;
+        long opened;
+        long flagged;
+
+        TileTask(int id)
+        {
+            this.id = id;
+            this.tx = id / tileCols;
+            this.ty = id % tileCols;
+        }
+
+        void fetch()
+        {
+            for (int d = 0; d < 9; d++)
+            {
+                int x = (tx + d / 3 - 1) << SHIFT;
+                int y = (ty + d % 3 - 1) << SHIFT;
+                near[d] = inside(x, y) ? tile(x, y) : null;
+            }
+        }
+
+        @Override
+        protected void compute()
+        {
+            Tile t = near[4];
+            int x0 = tx << SHIFT;
+            int y0 = ty << SHIFT;
+            int k;
+            while ((k = firstQueued(t)) >= 0)
+            {
+                t.queued[k >> 6] &= ~(1L << k);
+                int x = x0 + (k >> SHIFT);
+                int y = y0 + (k & MASK);
+                int number = t.game[k];
+                int flags = 0;
+                int close = 0;
+                for (int i = x - 1; i <= x + 1; i++)
+                {
+                    for (int j = y - 1; j <= y + 1; j++)
+                    {
+                        byte v = square(i, j);
+                        if (v == Board.MINE)
+                            flags++;
+                        else if (v == Board.CLOSE)
+                            close++;
+                    }
+                }
+                if (close == 0 || (number != flags && number - flags != close))
+                {
+                    continue;
+                }
+                boolean safe = number == flags;
+                for (int i = x - 1; i <= x + 1; i++)
+                {
+                    for (int j = y - 1; j <= y + 1; j++)
+                    {
+                        if (square(i, j) != Board.CLOSE)
+                            continue;
+                        if (!own(i, j))
+                            send(safe ? OPEN : FLAG, i, j);
+                        else if (safe)
+                            reveal(i, j);
+                        else
+                            flag(i, j);
+                    }
+                }
+            }
+        }
+
+        private void reveal(int x, int y)
+        {
+            Tile t = near[4];
+            int k = local(x, y);
+            t.game[k] = (byte) count(x, y);
+            t.closed--;
+            t.queued[k >> 6] |= 1L << k;
+            opened++;
+            markDirty(x, y);
+        }
+
+        private void flag(int x, int y)
+        {
+            near[4].game[local(x, y)] = Board.MINE;
+            near[4].closed--;
+            flagged++;
+            markDirty(x, y);
+        }
+
+        private void markDirty(int x, int y)
+        {
+            for (int i = x - 1; i <= x + 1; i++)
+            {
+                for (int j = y - 1; j <= y + 1; j++)
+                {
+                    byte v = square(i, j);
+                    if (v <= Board.BLANK || v >= Board.MINE)
+                        continue;
+                    if (own(i, j))
+                        near[4].queued[local(i, j) >> 6] |= 1L << local(i, j);
+                    else
+                        send(QUEUE, i, j);
+                }
+            }
+        }
+
+        private byte square(int x, int y)
+        {
+            if (!inside(x, y))
+            {
+                return Board.WALL;
+            }
+            return near[((x >> SHIFT) - tx + 1) * 3 + (y >> SHIFT) - ty + 1].game[local(x, y)];
+        }
+
+        private boolean own(int x, int y)
+        {
+            return x >> SHIFT == tx && y >> SHIFT == ty;
+        }
+
+        private void send(byte op, int x, int y)
+        {
+            if (size == outbox.length)
+            {
+                outbox = Arrays.copyOf(outbox, size * 2);
+                ops = Arrays.copyOf(ops, size * 2);
+            }
+            outbox[size] = pack(x, y);
+            ops[size++] = op;
+        }
+    }
+
+    /**
+     * Solve one huge board and print what it cost.
+     * @param args rows cols [density] [seed] [maxTiles] [threads] [wide], more than one thread
+     * solves on a pool, wide seeds every tile and guesses in maxTiles / 9 tiles at a time
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.out.println("usage: TiledGame rows cols [density] [seed] [maxTiles] [threads] [wide]");
+            return;
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        double p = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        int maxTiles = args.length > 4 ? Integer.parseInt(args[4]) : 4096;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        boolean wide = args.length > 6 && args[6].equals("wide");
+
+        TiledGame game = new TiledGame(rows, cols, p, seed, maxTiles);
+        game.setSurvive(true);
+        if (wide)
+        {
+            game.setSeeded(true);
+            game.setGuessBatch(maxTiles / 9);
+        }
+        long start = System.nanoTime();
+        if (threads > 1)
+        {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            game.solve(pool);
+            pool.shutdown();
+        }
+        else
+        {
+            game.solve();
+        }
+        long nanos = System.nanoTime() - start;
+        Runtime rt = Runtime.getRuntime();
+        System.out.println(game);
+        System.out.printf("%.1f s, heap used %d MB%n", nanos / 1e9, (rt.totalMemory() - rt.freeMemory()) >> 20);
+    }
+}
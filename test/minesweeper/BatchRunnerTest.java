@@ -0,0 +1,64 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/* A batch is a function of its seed: the thread count and the split into runs do not change the report */
+public class BatchRunnerTest {
+
+    private static void assertReport(String what, BatchRunner.Report expected, BatchRunner.Report actual)
+    {
+        assertEquals(what, expected.toString(), actual.toString());
+    }
+
+    private static BatchRunner.Report run(int threads, int games)
+    {
+        try (BatchRunner runner = new BatchRunner(16, 16, 0.15, threads))
+        {
+            return runner.run(games, 42);
+        }
+    }
+
+    @Test
+    public void threadCountDoesNotChangeTheReport()
+    {
+        BatchRunner.Report one = run(1, 300);
+        assertEquals(300, one.games);
+        assertEquals(300, one.wins + one.losses);
+        for (int threads : new int[] {2, 3, 7})
+        {
+            assertReport(threads + " threads", one, run(threads, 300));
+        }
+    }
+
+    @Test
+    public void runsAddUp()
+    {
+        try (BatchRunner runner = new BatchRunner(12, 12, 0.2, 2))
+        {
+            BatchRunner.Report whole = runner.run(0, 200, 7);
+            BatchRunner.Report parts = runner.run(0, 70, 7);
+            parts.add(runner.run(70, 200, 7));
+            assertReport("0..70 + 70..200", whole, parts);
+
+            // closed, the next run starts a new pool
+            runner.close();
+            assertReport("after close", whole, runner.run(0, 200, 7));
+        }
+    }
+
+    @Test
+    public void gameIsTheSameAloneOrInARange()
+    {
+        try (BatchRunner runner = new BatchRunner(16, 16, 0.18, 1))
+        {
+            for (int k = 0; k < 40; k++)
+            {
+                BatchRunner.Report alone = new BatchRunner.Report();
+                runner.playGame(k, 5, alone);
+                assertReport("game " + k, alone, runner.run(k, k + 1, 5));
+            }
+        }
+    }
+}
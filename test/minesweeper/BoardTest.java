@@ -0,0 +1,80 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/* Flat index math and the guard ring of Board */
+public class BoardTest {
+
+    @Test
+    public void indexRoundTrips()
+    {
+        Board board = new Board(5, 7);
+        assertEquals(9, board.stride());
+        assertEquals(7 * 9, board.capacity());
+        for (int x = 0; x < 5; x++)
+        {
+            for (int y = 0; y < 7; y++)
+            {
+                int index = board.index(x, y);
+                assertEquals((x + 1) * 9 + y + 1, index);
+                assertEquals(x, board.row(index));
+                assertEquals(y, board.col(index));
+            }
+        }
+    }
+
+    @Test
+    public void guardRingSurroundsTheGrid()
+    {
+        Board board = new Board(3, 4);
+        board.fill(Board.CLOSE);
+        byte[] cells = board.cells();
+        int walls = 0;
+        for (int i = 0; i < cells.length; i++)
+        {
+            boolean inside = board.row(i) >= 0 && board.row(i) < 3 && board.col(i) >= 0 && board.col(i) < 4;
+            assertEquals("cell " + i, inside ? Board.CLOSE : Board.WALL, cells[i]);
+            if (!inside)
+                walls++;
+        }
+        assertEquals(5 * 6 - 3 * 4, walls);
+    }
+
+    @Test
+    public void neighboursAreTheEightAroundASquare()
+    {
+        Board board = new Board(4, 4);
+        int middle = board.index(1, 2);
+        int found = 0;
+        for (int d : board.neighbours())
+        {
+            int next = middle + d;
+            assertTrue(Math.abs(board.row(next) - 1) <= 1 && Math.abs(board.col(next) - 2) <= 1);
+            assertFalse(next == middle);
+            found++;
+        }
+        assertEquals(8, found);
+    }
+
+    @Test
+    public void countMinesMatchesTheLegacyScan()
+    {
+        int[][] map = {
+            {9, 0, 0, 9},
+            {0, 0, 0, 0},
+            {0, 9, 9, 0},
+        };
+        Board board = Board.fromArray(map);
+        board.countMines();
+        assertArrayEquals(new int[][] {
+            {9, 1, 1, 9},
+            {2, 3, 3, 2},
+            {1, 9, 9, 1},
+        }, board.toArray());
+    }
+}
@@ -0,0 +1,69 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* CellBits against java.util.BitSet, across word boundaries */
+public class CellBitsTest {
+
+    private static final int CAPACITY = 300;
+
+    private static CellBits random(SplittableRandom rand, BitSet model)
+    {
+        CellBits bits = new CellBits(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++)
+        {
+            if (rand.nextInt(4) == 0)
+            {
+                bits.set(i);
+                model.set(i);
+            }
+        }
+        return bits;
+    }
+
+    @Test
+    public void singleBitsAndScans()
+    {
+        BitSet model = new BitSet();
+        CellBits bits = random(new SplittableRandom(1), model);
+        assertEquals(model.cardinality(), bits.cardinality());
+        for (int i = 0; i < CAPACITY; i++)
+        {
+            assertEquals(model.get(i), bits.get(i));
+            assertEquals(model.nextSetBit(i), bits.nextSetBit(i));
+        }
+        assertEquals(-1, bits.nextSetBit(CAPACITY + 64));
+
+        bits.clear(model.nextSetBit(0));
+        assertEquals(model.cardinality() - 1, bits.cardinality());
+        bits.clearAll();
+        assertEquals(-1, bits.nextSetBit(0));
+    }
+
+    @Test
+    public void wholeSetOperations()
+    {
+        SplittableRandom rand = new SplittableRandom(2);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        CellBits bitsA = random(rand, a);
+        CellBits bitsB = random(rand, b);
+
+        BitSet extra = (BitSet) a.clone();
+        extra.andNot(b);
+        assertEquals(extra.nextSetBit(0), bitsA.firstNotIn(bitsB));
+
+        bitsA.andNot(bitsB);
+        assertEquals(extra.cardinality(), bitsA.cardinality());
+        assertEquals(-1, bitsA.firstNotIn(bitsA));
+        assertTrue(bitsA.sameAs(bitsA));
+        assertFalse(bitsA.sameAs(bitsB));
+    }
+}
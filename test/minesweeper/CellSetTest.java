@@ -0,0 +1,57 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* CellSet against a BitSet under random adds and removes */
+public class CellSetTest {
+
+    @Test
+    public void behavesLikeASet()
+    {
+        CellSet set = new CellSet(200);
+        BitSet model = new BitSet(200);
+        SplittableRandom rand = new SplittableRandom(5);
+        for (int step = 0; step < 20000; step++)
+        {
+            int index = rand.nextInt(200);
+            if (rand.nextBoolean())
+                assertEquals(!model.get(index), set.add(index));
+            else
+                assertEquals(model.get(index), set.remove(index));
+            if (set.contains(index))
+                model.set(index);
+            else
+                model.clear(index);
+            assertEquals(model.cardinality(), set.size());
+        }
+
+        // the dense part holds every member exactly once
+        BitSet seen = new BitSet(200);
+        for (int i = 0; i < set.size(); i++)
+        {
+            assertFalse(seen.get(set.get(i)));
+            seen.set(set.get(i));
+        }
+        assertEquals(model, seen);
+        assertTrue(model.get(set.pick(rand)));
+    }
+
+    @Test
+    public void clearEmptiesTheSet()
+    {
+        CellSet set = new CellSet(16);
+        set.add(3);
+        set.add(15);
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(3));
+        assertTrue(set.add(15));
+    }
+}
@@ -0,0 +1,65 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+
+
+import org.junit.Test;
+
+/* The frontier stage only forces squares that are forced, on pinned boards */
+public class FrontierSolverTest {
+
+    @Test
+    public void approximatedComponentForcesNothingWrong()
+    {
+        // flagged a safe square while a component was approximated
+        Soundness.check(Solver.HEURISTIC, 40, 0.3, 134);
+    }
+
+    @Test
+    public void denseBoardsAreSolvedSoundly()
+    {
+        for (int k = 0; k < 150; k++)
+        {
+            Soundness.check(Solver.HEURISTIC, 40, 0.3, k);
+        }
+    }
+
+    @Test
+    public void smallBoardsAreSolvedSoundly()
+    {
+        for (int k = 0; k < 1000; k++)
+        {
+            Soundness.check(Solver.HEURISTIC, 12, 0.2, k);
+        }
+    }
+
+    @Test
+    public void forcedSquaresOfASmallPosition()
+    {
+        // 1 at the top left corner with one close neighbour left: that one is the mine
+        int[][] map = {
+            {0, 1, 9},
+            {0, 1, 1},
+            {0, 0, 0},
+        };
+        Board mineMap = Board.fromArray(map);
+        Board gameMap = mineMap.newLayer(Board.CLOSE);
+        CellSet closed = new CellSet(gameMap.capacity());
+        for (int x = 0; x < 3; x++)
+        {
+            for (int y = 0; y < 3; y++)
+            {
+                if (x == 0 && y == 2)
+                    closed.add(gameMap.index(x, y));
+                else
+                    gameMap.set(x, y, mineMap.get(x, y));
+            }
+        }
+        FrontierSolver solver = new FrontierSolver(null);
+        solver.analyze(gameMap, closed, 1);
+        assertEquals(0, solver.safeCount());
+        assertEquals(1, solver.mineCount());
+        assertEquals(gameMap.index(0, 2), solver.mines()[0]);
+        assertEquals(0, solver.approximated());
+    }
+}
@@ -0,0 +1,276 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* Game settings and reuse that must not change how a game is played, what a game hands out, the player and batch moves, and the undo journal */
+public class GameTest {
+
+    @Test
+    public void patternCachePlaysTheSameGames()
+    {
+        for (int k = 0; k < 300; k++)
+        {
+            Board mineMap = Soundness.board(16, 0.2, k);
+            Game plain = new Game(mineMap, new SplittableRandom(k));
+            Game cached = new Game(mineMap, new SplittableRandom(k));
+            cached.setPatternCache(8);
+            plain.solve(Solver.HEURISTIC);
+            cached.solve(Solver.HEURISTIC);
+            assertEquals("board " + k, plain.state(), cached.state());
+            assertEquals("board " + k, plain.getGuessCount(), cached.getGuessCount());
+            assertEquals("board " + k, plain.getCloseSquares().size(), cached.getCloseSquares().size());
+        }
+    }
+
+    private static void assertSameGame(String what, Game expected, Game actual)
+    {
+        assertEquals(what, expected.state(), actual.state());
+        assertEquals(what, expected.getGuessCount(), actual.getGuessCount());
+        assertEquals(what, expected.getMinesUnflagged(), actual.getMinesUnflagged());
+        assertArrayEquals(what, expected.getGameMap().cells(), actual.getGameMap().cells());
+    }
+
+    @Test
+    public void resetPlaysTheGameOfAFreshInstance()
+    {
+        // one shape, so every buffer is reused, then shapes that change from board to board
+        int[][] shapes = {{16, 16}, {8, 8}, {16, 16}, {12, 30}, {5, 40}, {12, 30}};
+        Game sameShape = null;
+        Game mixed = null;
+        for (int k = 0; k < 300; k++)
+        {
+            Solver solver = k % 3 == 0 ? Solver.LINEAR : Solver.HEURISTIC;
+            Board mineMap = Soundness.board(16, 0.18, k);
+            Game fresh = new Game(mineMap, new SplittableRandom(k));
+            if (sameShape == null)
+                sameShape = new Game(mineMap, new SplittableRandom(k));
+            else
+                sameShape.reset(mineMap, new SplittableRandom(k));
+            fresh.solve(solver);
+            sameShape.solve(solver);
+            assertSameGame("board " + k, fresh, sameShape);
+
+            int[] shape = shapes[k % shapes.length];
+            mineMap = MineGenerator.withDensity(shape[0], shape[1], 0.18, new SplittableRandom(k), 2, 2);
+            fresh = new Game(mineMap, new SplittableRandom(k));
+            if (mixed == null)
+                mixed = new Game(mineMap, new SplittableRandom(k));
+            else
+                mixed.reset(mineMap, new SplittableRandom(k));
+            fresh.solve(solver);
+            mixed.solve(solver);
+            assertSameGame(shape[0] + "x" + shape[1] + " board " + k, fresh, mixed);
+        }
+    }
+
+    @Test
+    public void resetSeedPlaysTheGameOfAFreshInstance()
+    {
+        Minesweeper reused = new Minesweeper(12, 12, 0.2);
+        for (int k = 0; k < 200; k++)
+        {
+            Minesweeper fresh = new Minesweeper(12, 12, 0.2, new SplittableRandom(k), true);
+            reused.reset(k);
+            assertArrayEquals("board " + k, fresh.getMineMap().cells(), reused.getMineMap().cells());
+            assertEquals("board " + k, fresh.solution(k), reused.solution(k));
+            assertSameGame("board " + k, fresh, reused);
+        }
+    }
+
+    @Test
+    public void gameMapIsACopy()
+    {
+        Game game = new Game(Soundness.board(10, 0.2, 1), new SplittableRandom(1));
+        Board copy = game.getGameMap();
+        int closed = game.getCloseSquares().get(0);
+        copy.set(closed, Board.MINE);
+        assertEquals(Board.CLOSE, game.getGameMap().get(closed));
+        assertEquals(Board.CLOSE, game.square(copy.row(closed), copy.col(closed)));
+    }
+
+    @Test
+    public void closeSquaresAndMineMapAreCopies()
+    {
+        Minesweeper game = new Minesweeper(Soundness.board(10, 0.2, 1), new SplittableRandom(1));
+        CellSet closed = game.getCloseSquares();
+        int size = closed.size();
+        closed.remove(closed.get(0));
+        assertEquals(size, game.getCloseSquares().size());
+
+        Board mineMap = game.getMineMap();
+        mineMap.fill(Board.MINE);
+        assertFalse(Arrays.equals(mineMap.cells(), game.getMineMap().cells()));
+    }
+
+    @Test
+    public void noFlagIsNoResult()
+    {
+        Minesweeper game = new Minesweeper(Soundness.board(10, 0.2, 1), new SplittableRandom(1));
+        assertFalse(game.getResult());
+    }
+
+    /* No blanks, so every square starts CLOSE: mines in the corners, 1 and 2 in between */
+    private static Game corners()
+    {
+        Board mineMap = Board.fromArray(new int[][] {
+            {9, 0, 0, 9},
+            {0, 0, 0, 0},
+            {9, 0, 0, 9},
+        });
+        mineMap.countMines();
+        return new Game(mineMap, new SplittableRandom(1));
+    }
+
+    @Test
+    public void satisfiedChordOpensTheOtherNeighbours()
+    {
+        Game game = corners();
+        assertEquals(1, game.open(1, 1));
+        assertTrue(game.flag(0, 0));
+        assertTrue(game.flag(2, 0));
+        assertEquals(6, game.chord(1, 1));
+        assertEquals(1, game.square(0, 1));
+        assertEquals(2, game.square(1, 0));
+        assertEquals(2, game.square(1, 2));
+        assertEquals(1, game.square(2, 2));
+        assertEquals(Board.CLOSE, game.square(0, 3));
+        assertEquals(Game.State.PLAYING, game.state());
+    }
+
+    @Test
+    public void unsatisfiedChordOpensNothing()
+    {
+        Game game = corners();
+        game.open(1, 1);
+        game.flag(0, 0);
+        assertEquals(0, game.chord(1, 1));
+        assertEquals(Board.CLOSE, game.square(0, 1));
+        assertEquals(Board.CLOSE, game.square(2, 0));
+        // a closed square is no number to chord on
+        assertEquals(0, game.chord(0, 1));
+    }
+
+    @Test
+    public void chordWithAWrongFlagLoses()
+    {
+        Game game = corners();
+        game.open(1, 1);
+        game.flag(0, 0);
+        game.flag(1, 0);
+        assertEquals(-1, game.chord(1, 1));
+        assertEquals(Game.State.LOST, game.state());
+        assertEquals(0, game.open(2, 2));
+    }
+
+    @Test
+    public void batchOpenStopsAtTheFirstMine()
+    {
+        Game game = corners();
+        Board board = game.getGameMap();
+        int[] squares = {board.index(0, 1), board.index(1, 1), board.index(0, 0), board.index(0, 2), board.index(1, 2)};
+        assertEquals(-1, game.openSquares(squares, squares.length));
+        assertEquals(Game.State.LOST, game.state());
+        assertEquals(1, game.square(0, 1));
+        assertEquals(2, game.square(1, 1));
+        assertEquals(Board.CLOSE, game.square(0, 2));
+        assertEquals(Board.CLOSE, game.square(1, 2));
+
+        Game safe = corners();
+        assertEquals(2, safe.openSquares(new int[] {squares[0], squares[1], squares[0]}, 3));
+        assertEquals(Game.State.PLAYING, safe.state());
+    }
+
+    @Test
+    public void batchFlagSkipsSquaresNotClose()
+    {
+        Game game = corners();
+        Board board = game.getGameMap();
+        game.open(1, 1);
+        int[] squares = {board.index(0, 0), board.index(1, 1), board.index(0, 0), board.index(2, 3)};
+        assertEquals(2, game.flagSquares(squares, squares.length));
+        assertEquals(Board.MINE, game.square(0, 0));
+        assertEquals(Board.MINE, game.square(2, 3));
+        assertEquals(2, game.remainingMines());
+        // count limits the batch
+        assertEquals(1, game.flagSquares(new int[] {board.index(0, 3), board.index(2, 0)}, 1));
+        assertEquals(Board.CLOSE, game.square(2, 0));
+    }
+
+    @Test
+    public void rollbackRestoresTheGame()
+    {
+        for (int k = 0; k < 100; k++)
+        {
+            Board mineMap = Soundness.board(12, 0.2, k);
+            Game game = new Game(mineMap, new SplittableRandom(k));
+            Game.State state = game.state();
+            byte[] before = game.getGameMap().cells();
+            int closed = game.getCloseSquares().size();
+            int unflagged = game.getMinesUnflagged();
+
+            int mark = game.snapshot();
+            game.solve(Solver.HEURISTIC);
+            game.rollback(mark);
+
+            assertEquals("board " + k, state, game.state());
+            assertArrayEquals("board " + k, before, game.getGameMap().cells());
+            assertEquals("board " + k, closed, game.getCloseSquares().size());
+            assertEquals("board " + k, unflagged, game.getMinesUnflagged());
+        }
+    }
+
+    @Test
+    public void nestedSnapshotsUndoFlagsUnflagsAndALoss()
+    {
+        Board mineMap = Soundness.board(10, 0.2, 3);
+        Game game = new Game(mineMap, new SplittableRandom(3));
+        int mine = -1;
+        int safe = -1;
+        for (int i = 0; i < game.getCloseSquares().size(); i++)
+        {
+            int index = game.getCloseSquares().get(i);
+            if (mineMap.get(index) == Board.MINE)
+                mine = index;
+            else
+                safe = index;
+        }
+        int x = mineMap.row(mine);
+        int y = mineMap.col(mine);
+        byte[] start = game.getGameMap().cells();
+        int unflagged = game.getMinesUnflagged();
+
+        int outer = game.snapshot();
+        assertTrue(game.flag(x, y));
+        assertEquals(unflagged - 1, game.getMinesUnflagged());
+        byte[] flagged = game.getGameMap().cells();
+
+        int inner = game.snapshot();
+        assertTrue(game.unflag(x, y));
+        assertEquals(-1, game.open(x, y));
+        assertEquals(Game.State.LOST, game.state());
+        game.rollback(inner);
+
+        assertEquals(Game.State.PLAYING, game.state());
+        assertArrayEquals(flagged, game.getGameMap().cells());
+        assertEquals(unflagged - 1, game.getMinesUnflagged());
+
+        // released changes stay until the outer snapshot rolls them back too
+        int kept = game.snapshot();
+        game.open(mineMap.row(safe), mineMap.col(safe));
+        game.release(kept);
+        game.rollback(outer);
+
+        assertArrayEquals(start, game.getGameMap().cells());
+        assertEquals(unflagged, game.getMinesUnflagged());
+        assertTrue(game.getCloseSquares().contains(mine));
+        assertTrue(game.getCloseSquares().contains(safe));
+    }
+}
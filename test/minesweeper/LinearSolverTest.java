@@ -0,0 +1,84 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* Exact elimination and the incremental frontier of LinearSolver, on pinned boards */
+public class LinearSolverTest {
+
+    private static LinearSolver.Row row(long b, int... at)
+    {
+        long[] a = new long[at.length];
+        Arrays.fill(a, 1);
+        return new LinearSolver.Row(at, a, at.length, b);
+    }
+
+    @Test
+    public void reductionForcesTheOnlySolution()
+    {
+        // x0 + x1 = 1, x1 + x2 = 1, x0 + x1 + x2 = 2: only x0 = x2 = 1, x1 = 0
+        LinearSolver.Moves moves = new LinearSolver.Moves();
+        int[] columns = {10, 20, 30};
+        LinearSolver.reduce(new LinearSolver.Row[] {row(1, 0, 1), row(1, 1, 2), row(2, 0, 1, 2)}, columns, moves);
+        assertArrayEquals(new int[] {20}, Arrays.copyOf(moves.safe, moves.safeCount));
+        int[] mines = Arrays.copyOf(moves.mines, moves.mineCount);
+        Arrays.sort(mines);
+        assertArrayEquals(new int[] {10, 30}, mines);
+    }
+
+    @Test
+    public void undecidedRowsForceNothing()
+    {
+        // x0 + x1 = 1 and x1 + x2 = 1 leave x1 open either way
+        LinearSolver.Moves moves = new LinearSolver.Moves();
+        LinearSolver.reduce(new LinearSolver.Row[] {row(1, 0, 1), row(1, 1, 2)}, new int[] {10, 20, 30}, moves);
+        assertEquals(0, moves.safeCount + moves.mineCount);
+    }
+
+    @Test
+    public void inconsistentRowIsDropped()
+    {
+        // x0 = 0 leaves 2 x1 = 1, which has no integer solution: the row goes rather than force anything
+        LinearSolver.Row half = new LinearSolver.Row(new int[] {0, 1}, new long[] {2, 2}, 2, 1);
+        assertNull(half.eliminate(row(0, 0), 2));
+    }
+
+    @Test
+    public void denseBoardsAreSolvedSoundly()
+    {
+        for (int k = 0; k < 150; k++)
+        {
+            Soundness.check(Solver.LINEAR, 40, 0.3, k);
+        }
+    }
+
+    @Test
+    public void smallBoardsAreSolvedSoundly()
+    {
+        for (int k = 0; k < 1000; k++)
+        {
+            Soundness.check(Solver.LINEAR, 12, 0.2, k);
+        }
+    }
+
+    @Test
+    public void wideBoardsAreSolvedSoundly()
+    {
+        // a number spans two board rows, far more than 64 flat indexes apart on these
+        for (int k = 0; k < 20; k++)
+        {
+            Board mineMap = MineGenerator.withDensity(6, 200, 0.18, new SplittableRandom(k), 2, 2);
+            Game game = new Game(mineMap, new SplittableRandom(k));
+            Soundness soundness = new Soundness(mineMap);
+            game.setListener(soundness);
+            game.solve(Solver.LINEAR);
+            soundness.assertSound("board " + k);
+        }
+    }
+}
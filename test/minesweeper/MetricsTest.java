@@ -0,0 +1,103 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* Power-of-two buckets and their percentile bounds, and what a game adds to the counters */
+public class MetricsTest {
+
+    @Test
+    public void bucketsSplitAtPowersOfTwo()
+    {
+        Metrics.Histogram h = new Metrics.Histogram();
+        for (long value : new long[] {0, 1, 2, 3, 4, 7, 8, 1000})
+        {
+            h.record(value);
+        }
+        // buckets: {0} {1} {2, 3} {4, 7} {8} {1000}, a quantile reports the top of its bucket
+        assertEquals(0, h.percentile(0.125));
+        assertEquals(1, h.percentile(0.25));
+        assertEquals(3, h.percentile(0.5));
+        assertEquals(7, h.percentile(0.75));
+        assertEquals(15, h.percentile(0.875));
+        // the last bucket is capped by the largest value seen, 1000 rather than 1023
+        assertEquals(1000, h.percentile(1));
+        assertEquals(1000, h.max());
+        assertEquals(8, h.count());
+        assertEquals(1025 / 8.0, h.mean(), 1e-9);
+    }
+
+    @Test
+    public void negativeValuesCountAsZero()
+    {
+        Metrics.Histogram h = new Metrics.Histogram();
+        h.record(-5);
+        assertEquals(1, h.count());
+        assertEquals(0, h.percentile(0.99));
+        assertEquals(0, h.max());
+    }
+
+    @Test
+    public void emptyHistogramIsZero()
+    {
+        Metrics.Histogram h = new Metrics.Histogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.mean(), 0);
+        assertEquals(0, h.max());
+        assertEquals(0, h.percentile(0.5));
+        assertEquals(0, h.percentile(0.99));
+    }
+
+    @Test
+    public void percentilesAreUpperBoundsWithinTheirBucket()
+    {
+        SplittableRandom rand = new SplittableRandom(3);
+        long[] values = new long[10000];
+        Metrics.Histogram h = new Metrics.Histogram();
+        for (int i = 0; i < values.length; i++)
+        {
+            // spread over many powers of two, like solve times
+            values[i] = rand.nextLong(1L << rand.nextInt(1, 30));
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[] {0.5, 0.9, 0.99, 0.999})
+        {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long bound = h.percentile(q);
+            assertTrue(q + ": " + bound + " < " + exact, bound >= exact);
+            assertTrue(q + ": " + bound + " > 2 * " + exact, bound <= 2 * exact + 1);
+        }
+    }
+
+    @Test
+    public void everyGameCountsOnce()
+    {
+        Metrics metrics = new Metrics();
+        BatchRunner.Report report;
+        try (BatchRunner runner = new BatchRunner(12, 12, 0.2, 2))
+        {
+            runner.setMetrics(metrics);
+            report = runner.run(150, 9);
+        }
+        assertEquals(150, metrics.get(Metrics.Counter.GAMES));
+        assertEquals(report.wins, metrics.get(Metrics.Counter.WINS));
+        assertEquals(report.guesses, metrics.get(Metrics.Counter.GUESSES));
+        assertEquals(150, metrics.histogram(Metrics.Phase.SOLVE).count());
+        assertEquals(150, metrics.histogram(Metrics.Phase.GENERATE).count());
+
+        Minesweeper game = new Minesweeper(Soundness.board(10, 0.2, 4), new SplittableRandom(4));
+        game.solution(0);
+        Metrics one = new Metrics();
+        game.recordTo(one);
+        assertEquals(1, one.get(Metrics.Counter.GAMES));
+        assertEquals(game.getGuessCount(), one.get(Metrics.Counter.GUESSES));
+        // a game on a given board generated nothing
+        assertEquals(0, one.histogram(Metrics.Phase.GENERATE).count());
+    }
+}
@@ -0,0 +1,73 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* Seeded mine maps: the same seed gives the same map, and the safe square stays safe */
+public class MineGeneratorTest {
+
+    @Test
+    public void sameSeedSameMap()
+    {
+        for (long seed = 0; seed < 50; seed++)
+        {
+            Board a = MineGenerator.withDensity(16, 30, 0.2, new SplittableRandom(seed), 2, 2);
+            Board b = MineGenerator.withDensity(16, 30, 0.2, new SplittableRandom(seed), 2, 2);
+            assertArrayEquals("seed " + seed, a.cells(), b.cells());
+
+            Board c = MineGenerator.withCount(16, 30, 99, new SplittableRandom(seed), 2, 2);
+            Board d = MineGenerator.withCount(16, 30, 99, new SplittableRandom(seed), 2, 2);
+            assertArrayEquals("seed " + seed, c.cells(), d.cells());
+        }
+        Board one = MineGenerator.withDensity(16, 30, 0.2, new SplittableRandom(1), 2, 2);
+        Board two = MineGenerator.withDensity(16, 30, 0.2, new SplittableRandom(2), 2, 2);
+        assertFalse(Arrays.equals(one.cells(), two.cells()));
+    }
+
+    @Test
+    public void reusedBoardDrawsTheSameMap()
+    {
+        Board reused = MineGenerator.withDensity(9, 9, 0.5, new SplittableRandom(99), -1, -1);
+        for (long seed = 0; seed < 50; seed++)
+        {
+            MineGenerator.fillDensity(reused, 0.15, new SplittableRandom(seed), 3, 4);
+            Board fresh = MineGenerator.withDensity(9, 9, 0.15, new SplittableRandom(seed), 3, 4);
+            assertArrayEquals("seed " + seed, fresh.cells(), reused.cells());
+        }
+    }
+
+    @Test
+    public void safeSquareIsNeverAMine()
+    {
+        for (long seed = 0; seed < 200; seed++)
+        {
+            Board dense = MineGenerator.withDensity(5, 5, 0.95, new SplittableRandom(seed), 4, 3);
+            assertNotEquals("seed " + seed, Board.MINE, dense.get(4, 3));
+            Board full = MineGenerator.withCount(5, 5, 24, new SplittableRandom(seed), 4, 3);
+            assertNotEquals("seed " + seed, Board.MINE, full.get(4, 3));
+        }
+    }
+
+    @Test
+    public void countPlacesExactlyThatManyMines()
+    {
+        for (long seed = 0; seed < 50; seed++)
+        {
+            Board board = MineGenerator.withCount(16, 30, 99, new SplittableRandom(seed), 2, 2);
+            int mines = 0;
+            for (byte cell : board.cells())
+            {
+                if (cell == Board.MINE)
+                    mines++;
+            }
+            assertEquals("seed " + seed, 99, mines);
+        }
+    }
+}
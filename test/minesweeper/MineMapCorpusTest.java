@@ -0,0 +1,130 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/* Round trip, append on reopen and recovery of a corpus whose writer died, even before its first close */
+public class MineMapCorpusTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Board board(int k)
+    {
+        return Soundness.board(5 + k % 7, 0.2, k);
+    }
+
+    private static void write(String path, int from, int to) throws IOException
+    {
+        // a small batch so a writer of a few boards still flushes several times
+        try (MineMapCorpus.Writer writer = new MineMapCorpus.Writer(path, 64))
+        {
+            for (int k = from; k < to; k++)
+            {
+                writer.add(board(k));
+            }
+        }
+    }
+
+    private static void assertBoards(String path, int count) throws IOException
+    {
+        try (MineMapCorpus.Reader reader = new MineMapCorpus.Reader(path))
+        {
+            assertEquals(count, reader.size());
+            for (int k = 0; k < count; k++)
+            {
+                assertArrayEquals("board " + k, board(k).toArray(), reader.get(k).toArray());
+            }
+        }
+    }
+
+    @Test
+    public void boardsRoundTrip() throws IOException
+    {
+        String path = new File(folder.getRoot(), "corpus").getPath();
+        write(path, 0, 40);
+        assertBoards(path, 40);
+    }
+
+    @Test
+    public void reopeningAppendsAfterTheOldFooter() throws IOException
+    {
+        File file = new File(folder.getRoot(), "corpus");
+        String path = file.getPath();
+        write(path, 0, 30);
+        long first = file.length();
+        write(path, 30, 50);
+        assertBoards(path, 50);
+
+        // every byte of the first corpus is still there
+        File copy = new File(folder.getRoot(), "copy");
+        write(copy.getPath(), 0, 30);
+        assertArrayEquals(Files.readAllBytes(copy.toPath()), prefix(file, first));
+    }
+
+    @Test
+    public void aCutAppendStillReadsTheOriginalBoards() throws IOException
+    {
+        File file = new File(folder.getRoot(), "corpus");
+        String path = file.getPath();
+        write(path, 0, 30);
+        long first = file.length();
+        write(path, 30, 50);
+        long second = file.length();
+
+        // the second writer died in the middle of its boards, then in the middle of its footer
+        for (long cut : new long[] {first + (second - first) / 3, second - 12, first + 1})
+        {
+            truncate(file, cut);
+            assertBoards(path, 30);
+        }
+
+        // a writer opened on the cut corpus carries on after the last good footer
+        write(path, 30, 45);
+        assertBoards(path, 45);
+    }
+
+    @Test
+    public void aWriterThatNeverClosedLeavesAnEmptyCorpus() throws IOException
+    {
+        String path = new File(folder.getRoot(), "corpus").getPath();
+        MineMapCorpus.Writer dead = new MineMapCorpus.Writer(path, 64);
+        for (int k = 0; k < 50; k++)
+        {
+            dead.add(board(100 + k));
+        }
+        dead.flush();
+
+        // no close: the boards got no footer, the empty one written with the header is the last trailer
+        assertBoards(path, 0);
+        write(path, 0, 20);
+        assertBoards(path, 20);
+    }
+
+    private static void truncate(File file, long length) throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(length);
+        }
+    }
+
+    private static byte[] prefix(File file, long length) throws IOException
+    {
+        byte[] bytes = new byte[(int) length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            raf.readFully(bytes);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,100 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/* The binary mine map format and the text converter, and the files they refuse */
+public class MineMapFileTest {
+
+    /* a lost game's mine map as the legacy harness saved it, the tests run in the project directory */
+    private static final String FIXTURE = "mimemap_fail_4.txt";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String saved(Board mineMap) throws IOException
+    {
+        String path = folder.newFile().getPath();
+        MineMapFile.save(mineMap, path);
+        return path;
+    }
+
+    @Test
+    public void boardRoundTrips() throws IOException
+    {
+        // shapes whose square count is and is not a multiple of 8
+        int[][] shapes = {{8, 8}, {5, 7}, {1, 1}, {13, 31}, {30, 16}};
+        for (int k = 0; k < shapes.length; k++)
+        {
+            Board mineMap = MineGenerator.withDensity(shapes[k][0], shapes[k][1], 0.3, new SplittableRandom(k), -1, -1);
+            String path = saved(mineMap);
+            assertTrue(MineMapFile.isBinary(path));
+            assertArrayEquals("shape " + k, mineMap.toArray(), MineMapFile.load(path).toArray());
+        }
+    }
+
+    @Test
+    public void textConvertsToTheSameBoard() throws IOException
+    {
+        String binary = folder.newFile().getPath();
+        MineMapFile.convert(FIXTURE, binary);
+        assertFalse(MineMapFile.isBinary(FIXTURE));
+        assertTrue(MineMapFile.isBinary(binary));
+        assertArrayEquals(MineMapFile.loadText(FIXTURE), MineMapFile.load(binary).toArray());
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException
+    {
+        File file = new File(saved(Soundness.board(13, 0.2, 1)));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        for (int length : new int[] {0, 6, MineMapFile.HEADER - 1, MineMapFile.HEADER, bytes.length - 1})
+        {
+            Files.write(file.toPath(), Arrays.copyOf(bytes, length));
+            assertRejected(file.getPath(), "cut at " + length);
+        }
+    }
+
+    @Test
+    public void wrongMagicOrVersionIsRejected() throws IOException
+    {
+        File file = new File(saved(Soundness.board(13, 0.2, 1)));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        byte[] magic = bytes.clone();
+        magic[0] ^= 1;
+        Files.write(file.toPath(), magic);
+        assertFalse(MineMapFile.isBinary(file.getPath()));
+        assertRejected(file.getPath(), "magic");
+
+        byte[] version = bytes.clone();
+        version[5] = (byte) (MineMapFile.VERSION + 1);
+        Files.write(file.toPath(), version);
+        assertRejected(file.getPath(), "version");
+    }
+
+    private static void assertRejected(String path, String what)
+    {
+        try
+        {
+            MineMapFile.load(path);
+            fail(what + ": loaded");
+        }
+        catch (IOException e)
+        {
+            // refused as it should be
+        }
+    }
+}
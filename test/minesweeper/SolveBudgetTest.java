@@ -0,0 +1,86 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/* Anytime solves: a budget only loses deductions, an unlimited one plays the normal game */
+public class SolveBudgetTest {
+
+    @Test
+    public void tinyBudgetsMakeNoWrongMove()
+    {
+        long[] budgets = {1, 10, 100, 1000, 5000, 20000};
+        for (int k = 0; k < 60; k++)
+        {
+            Board mineMap = Soundness.board(40, 0.3, k);
+            for (long ops : budgets)
+            {
+                Game game = new Game(mineMap, new SplittableRandom(k));
+                Soundness soundness = new Soundness(mineMap);
+                game.setListener(soundness);
+                AnytimeResult result = game.solveWithin(SolveBudget.ops(ops));
+                soundness.assertSound("board " + k + " within " + ops + " ops");
+                if (result.guess() >= 0)
+                    assertEquals(Board.CLOSE, game.getGameMap().get(result.guess()));
+                assertTrue(result.resolved() > 0 && result.resolved() <= 1);
+                assertEquals(result.state() != Game.State.PLAYING, result.complete());
+            }
+        }
+    }
+
+    @Test
+    public void cutEnumerationForcesNothingWrong()
+    {
+        int cut = 0;
+        for (int k = 0; k < 60; k++)
+        {
+            Board mineMap = Soundness.board(40, 0.3, k);
+            Game game = new Game(mineMap, new SplittableRandom(k));
+            game.solveWithin(SolveBudget.ops(2000));
+            FrontierSolver solver = new FrontierSolver(null);
+            solver.analyze(game.getGameMap(), game.getCloseSquares(), game.getMinesUnflagged(), 20, Long.MAX_VALUE);
+            cut += solver.cut();
+            for (int i = 0; i < solver.safeCount(); i++)
+                assertFalse("board " + k, mineMap.get(solver.safe()[i]) == Board.MINE);
+            for (int i = 0; i < solver.mineCount(); i++)
+                assertEquals("board " + k, Board.MINE, mineMap.get(solver.mines()[i]));
+        }
+        assertTrue(cut > 0);
+    }
+
+    @Test
+    public void unlimitedBudgetPlaysTheSameGame()
+    {
+        SolveBudget unlimited = new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int k = 0; k < 200; k++)
+        {
+            Board mineMap = Soundness.board(20, 0.2, k);
+            Game plain = new Game(mineMap, new SplittableRandom(k));
+            plain.solve(Solver.HEURISTIC);
+            Game budgeted = new Game(mineMap, new SplittableRandom(k));
+            AnytimeResult result = budgeted.solveWithin(unlimited);
+            assertTrue(result.complete());
+            assertFalse(unlimited.exhausted());
+            assertEquals(plain.state(), result.state());
+            assertEquals(plain.getGuessCount(), budgeted.getGuessCount());
+        }
+    }
+
+    @Test
+    public void operationBudgetIsDeterministic()
+    {
+        Board mineMap = Soundness.board(60, 0.2, 7);
+        Game a = new Game(mineMap, new SplittableRandom(7));
+        Game b = new Game(mineMap, new SplittableRandom(7));
+        AnytimeResult ra = a.solveWithin(SolveBudget.ops(3000));
+        AnytimeResult rb = b.solveWithin(SolveBudget.ops(3000));
+        assertEquals(ra.resolved(), rb.resolved(), 0.0);
+        assertEquals(ra.guess(), rb.guess());
+        assertEquals(ra.ops(), rb.ops());
+    }
+}
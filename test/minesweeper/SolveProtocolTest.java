@@ -0,0 +1,96 @@
+package minesweeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/* Requests and responses read back as they were written */
+public class SolveProtocolTest {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private DataInputStream in()
+    {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void requestRoundTrips() throws IOException
+    {
+        Board mineMap = Soundness.board(13, 0.2, 5);
+        SolveProtocol.writeHello(out);
+        SolveProtocol.writeRequest(out, 42, Solver.LINEAR, true, -7L, mineMap);
+        SolveProtocol.writeRequest(out, 43, Solver.HEURISTIC, false, 8L, mineMap);
+
+        DataInputStream in = in();
+        SolveProtocol.readHello(in);
+        SolveProtocol.Request first = SolveProtocol.readRequest(in);
+        assertEquals(42, first.id);
+        assertSame(Solver.LINEAR, first.solver);
+        assertTrue(first.moves);
+        assertEquals(-7L, first.seed);
+        assertArrayEquals(mineMap.toArray(), first.mineMap.toArray());
+        SolveProtocol.Request second = SolveProtocol.readRequest(in);
+        assertEquals(43, second.id);
+        assertSame(Solver.HEURISTIC, second.solver);
+        assertFalse(second.moves);
+        assertNull(SolveProtocol.readRequest(in));
+    }
+
+    @Test
+    public void responseRoundTrips() throws IOException
+    {
+        int[] moves = {SolverListener.OPEN << 28 | 30, SolverListener.FLAG << 28 | 31, SolverListener.GUESS << 28 | 1 << 25};
+        SolveProtocol.writeResponse(out, 9, Game.State.LOST, 3, 12345L, moves, moves.length);
+        SolveProtocol.writeResponse(out, 10, Game.State.WON, 0, 1L, moves, 0);
+
+        DataInputStream in = in();
+        SolveProtocol.Response lost = SolveProtocol.readResponse(in);
+        assertEquals(9, lost.id());
+        assertEquals(Game.State.LOST, lost.state());
+        assertEquals(3, lost.guesses());
+        assertEquals(12345L, lost.nanos());
+        assertEquals(3, lost.moveCount());
+        assertEquals(SolverListener.FLAG, lost.moveType(1));
+        assertEquals(31, lost.moveIndex(1));
+        assertEquals(SolverListener.GUESS, lost.moveType(2));
+        assertEquals(1 << 25, lost.moveIndex(2));
+        SolveProtocol.Response won = SolveProtocol.readResponse(in);
+        assertEquals(Game.State.WON, won.state());
+        assertEquals(0, won.moveCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownSolverIsRejected() throws IOException
+    {
+        SolveProtocol.writeRequest(out, 1, Solver.HEURISTIC, false, 0, Soundness.board(8, 0.2, 1));
+        byte[] request = bytes.toByteArray();
+        request[4] = 7;
+        SolveProtocol.readRequest(new DataInputStream(new ByteArrayInputStream(request)));
+    }
+
+    @Test(expected = IOException.class)
+    public void oversizedBoardIsRejected() throws IOException
+    {
+        out.writeInt(1);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.writeLong(0);
+        out.writeInt(1 << 14);
+        out.writeInt(1 << 14);
+        out.writeInt(0);
+        SolveProtocol.readRequest(in());
+    }
+}
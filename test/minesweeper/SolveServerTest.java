@@ -0,0 +1,57 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.junit.Test;
+
+/* A connection that goes bad still gets the answers to the requests read before the bad one */
+public class SolveServerTest {
+
+    @Test(timeout = 20000)
+    public void badRequestAnswersTheBatchReadBeforeIt() throws IOException
+    {
+        try (SolveServer server = new SolveServer(0, 1, 4, 64))
+        {
+            server.start();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port()))
+            {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                SolveProtocol.writeHello(out);
+                SolveProtocol.writeRequest(out, 1, Solver.HEURISTIC, false, 1, Soundness.board(10, 0.2, 1));
+                SolveProtocol.writeRequest(out, 2, Solver.LINEAR, false, 2, Soundness.board(10, 0.2, 2));
+                // request 3 names a solver that does not exist
+                out.writeInt(3);
+                out.writeByte(7);
+                out.flush();
+
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                SolveProtocol.readHello(in);
+                int answered = 0;
+                try
+                {
+                    while (true)
+                    {
+                        int id = SolveProtocol.readResponse(in).id();
+                        if (id != 1 && id != 2)
+                            fail("answer to request " + id);
+                        answered++;
+                    }
+                }
+                catch (EOFException e)
+                {
+                    // the server closed the connection after the good requests
+                }
+                assertEquals(2, answered);
+            }
+        }
+    }
+}
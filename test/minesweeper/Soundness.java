@@ -0,0 +1,64 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+/* Plays a game and counts the moves a sound solver never makes: a flag on a safe square, a mine opened without a guess */
+final class Soundness implements SolverListener {
+
+    private final Board mineMap;
+    private int guessed = -1;
+    int wrongFlags;
+    int unguessedMines;
+
+    Soundness(Board mineMap)
+    {
+        this.mineMap = mineMap;
+    }
+
+    @Override
+    public void guessed(int index)
+    {
+        guessed = index;
+    }
+
+    @Override
+    public void flagged(int index)
+    {
+        if (mineMap.get(index) != Board.MINE)
+            wrongFlags++;
+    }
+
+    @Override
+    public void opened(int index, int count)
+    {
+        if (mineMap.get(index) == Board.MINE && index != guessed)
+            unguessedMines++;
+        guessed = -1;
+    }
+
+    /* Board k of a size x size batch at density p, the first click at (2, 2) */
+    static Board board(int size, double p, int k)
+    {
+        return MineGenerator.withDensity(size, size, p, new SplittableRandom(k), 2, 2);
+    }
+
+    /* Solve board k with solver and fail on any unsound move */
+    static Game check(Solver solver, int size, double p, int k)
+    {
+        Board mineMap = board(size, p, k);
+        Game game = new Game(mineMap, new SplittableRandom(k));
+        Soundness soundness = new Soundness(mineMap);
+        game.setListener(soundness);
+        game.solve(solver);
+        soundness.assertSound("board " + k);
+        return game;
+    }
+
+    void assertSound(String what)
+    {
+        assertEquals(what + ": flags on safe squares", 0, wrongFlags);
+        assertEquals(what + ": mines opened without a guess", 0, unguessedMines);
+    }
+}
@@ -0,0 +1,88 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/* Resuming an interrupted sweep, and the interval it stops on */
+public class SweepTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void sweep(Path results) throws IOException
+    {
+        Sweep sweep = new Sweep(2, 3);
+        sweep.setHalfWidth(0.04);
+        sweep.setGames(50, 1600);
+        sweep.run(results, Arrays.asList(new int[] {8, 8}, new int[] {10, 10}), new double[] {0.25, 0.35},
+                Arrays.asList(Solver.HEURISTIC));
+    }
+
+    private static List<String> lines(Path path) throws IOException
+    {
+        return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void interruptedSweepEndsWithTheSameRows() throws IOException
+    {
+        Path whole = folder.getRoot().toPath().resolve("whole.csv");
+        sweep(whole);
+        List<String> expected = lines(whole);
+        assertTrue(expected.size() > 5);
+
+        // killed while writing a row in the middle of the third cell
+        for (int kept = 1; kept < expected.size(); kept += 2)
+        {
+            Path cut = folder.getRoot().toPath().resolve("cut" + kept + ".csv");
+            StringBuilder text = new StringBuilder();
+            for (String line : expected.subList(0, kept))
+            {
+                text.append(line).append('\n');
+            }
+            String next = expected.get(kept);
+            text.append(next, 0, next.length() / 2);
+            Files.write(cut, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            sweep(cut);
+            List<String> resumed = new ArrayList<String>(lines(cut));
+            resumed.remove(kept);
+            assertEquals("cut after line " + kept, expected, resumed);
+        }
+    }
+
+    @Test
+    public void finishedSweepAddsNothing() throws IOException
+    {
+        Path results = folder.getRoot().toPath().resolve("results.csv");
+        sweep(results);
+        List<String> first = lines(results);
+        sweep(results);
+        assertEquals(first, lines(results));
+    }
+
+    @Test
+    public void intervalIsSplitOverTheLooks()
+    {
+        assertEquals(1.959964, Sweep.normalQuantile(0.975), 1e-6);
+        assertEquals(-2.326348, Sweep.normalQuantile(0.01), 1e-6);
+        Sweep sweep = new Sweep(1, 1);
+        // 200, 400, ... 102400, then 200000
+        assertEquals(11, sweep.looks());
+        assertEquals(Sweep.normalQuantile(1 - 0.05 / 22), sweep.z(), 1e-12);
+        sweep.setGames(100, 800);
+        assertEquals(4, sweep.looks());
+    }
+}
@@ -0,0 +1,74 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/* Tiled games end the same way on one thread and on a pool, and never won after an explosion */
+public class TiledGameTest {
+
+    private static TiledGame game(int size, long seed, int maxTiles, boolean wide)
+    {
+        TiledGame game = new TiledGame(size, size, 0.15, seed, maxTiles);
+        game.setSurvive(true);
+        if (wide)
+        {
+            game.setSeeded(true);
+            game.setGuessBatch(maxTiles / 9);
+        }
+        return game;
+    }
+
+    @Test
+    public void poolEndsLikeOneThread()
+    {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try
+        {
+            for (boolean wide : new boolean[] {false, true})
+            {
+                for (long seed = 1; seed <= 3; seed++)
+                {
+                    TiledGame serial = game(300, seed, 64, wide);
+                    serial.solve();
+                    TiledGame parallel = game(300, seed, 64, wide);
+                    parallel.solve(pool);
+                    assertEquals(serial.state(), parallel.state());
+                    assertEquals(serial.opened(), parallel.opened());
+                    assertEquals(serial.flags(), parallel.flags());
+                    assertEquals(serial.guesses(), parallel.guesses());
+                    assertEquals(serial.exploded(), parallel.exploded());
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void explodedGameIsNotWon()
+    {
+        TiledGame game = game(400, 5, 64, false);
+        game.solve();
+        assertNotEquals(0, game.exploded());
+        assertEquals(Game.State.LOST, game.state());
+        assertEquals(400L * 400, game.opened() + game.flags());
+    }
+
+    @Test
+    public void seededTilesStartSafe()
+    {
+        TiledGame game = game(200, 9, 16, true);
+        for (int x = 0; x < 200; x += TiledGame.TILE)
+        {
+            for (int y = 0; y < 200; y += TiledGame.TILE)
+                assertFalse(game.mineAt(x, y));
+        }
+    }
+}
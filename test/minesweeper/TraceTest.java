@@ -0,0 +1,177 @@
+package minesweeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/* The ring of RingTrace past its capacity and the 9 byte records of FileTrace */
+public class TraceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /* Event k of a made-up solve: every kind of event, negative indexes and a clamped count */
+    private static void feed(SolverListener listener, int k)
+    {
+        switch (k % 5)
+        {
+        case 0:
+            listener.opened(k * 1000, k == 10 ? 1 << 25 : k);
+            break;
+        case 1:
+            listener.flagged(k);
+            break;
+        case 2:
+            listener.guessed(Integer.MAX_VALUE - k);
+            break;
+        case 3:
+            listener.round(k);
+            break;
+        default:
+            listener.finished(k % 2 == 0);
+            break;
+        }
+    }
+
+    private static void assertEvent(int k, int type, int index, int argument)
+    {
+        String what = "event " + k;
+        switch (k % 5)
+        {
+        case 0:
+            assertEquals(what, SolverListener.OPEN, type);
+            assertEquals(what, k * 1000, index);
+            assertEquals(what, k == 10 ? 0xFFFFFF : k, argument);
+            break;
+        case 1:
+            assertEquals(what, SolverListener.FLAG, type);
+            assertEquals(what, k, index);
+            assertEquals(what, 0, argument);
+            break;
+        case 2:
+            assertEquals(what, SolverListener.GUESS, type);
+            assertEquals(what, Integer.MAX_VALUE - k, index);
+            break;
+        case 3:
+            assertEquals(what, SolverListener.ROUND, type);
+            assertEquals(what, -1, index);
+            assertEquals(what, k, argument);
+            break;
+        default:
+            assertEquals(what, SolverListener.END, type);
+            assertEquals(what, -1, index);
+            assertEquals(what, k % 2 == 0 ? 1 : 0, argument);
+            break;
+        }
+    }
+
+    @Test
+    public void ringDropsTheOldestEventsInOrder()
+    {
+        RingTrace ring = new RingTrace(6);
+        for (int k = 0; k < 5; k++)
+        {
+            feed(ring, k);
+        }
+        assertEquals(5, ring.size());
+        assertEquals(5, ring.total());
+
+        // capacity 6 rounds up to 8, events 0..22 leave 15..22
+        for (int k = 5; k < 23; k++)
+        {
+            feed(ring, k);
+        }
+        assertEquals(8, ring.size());
+        assertEquals(23, ring.total());
+        for (int i = 0; i < ring.size(); i++)
+        {
+            long event = ring.get(i);
+            assertEvent(15 + i, RingTrace.type(event), RingTrace.index(event), RingTrace.argument(event));
+        }
+
+        ring.clear();
+        assertEquals(0, ring.size());
+        feed(ring, 10);
+        assertEquals(1, ring.size());
+        assertEvent(10, RingTrace.type(ring.get(0)), RingTrace.index(ring.get(0)), RingTrace.argument(ring.get(0)));
+    }
+
+    @Test
+    public void fileHoldsEveryEventAsNineBytes() throws IOException
+    {
+        File file = folder.newFile();
+        try (FileTrace trace = new FileTrace(file.getPath()))
+        {
+            for (int k = 0; k < 23; k++)
+            {
+                feed(trace, k);
+            }
+        }
+        assertEquals(23 * 9, file.length());
+        List<int[]> events = read(file);
+        for (int k = 0; k < 23; k++)
+        {
+            int[] event = events.get(k);
+            if (k == 10)
+                assertEquals(1 << 25, event[2]); // the file keeps the whole count
+            else
+                assertEvent(k, event[0], event[1], event[2]);
+        }
+    }
+
+    @Test
+    public void ringKeepsTheEndOfTheFileTrace() throws IOException
+    {
+        Board mineMap = Soundness.board(30, 0.2, 7);
+        File file = folder.newFile();
+        try (FileTrace trace = new FileTrace(file.getPath()))
+        {
+            Game game = new Game(mineMap, new SplittableRandom(7));
+            game.setListener(trace);
+            game.solve(Solver.HEURISTIC);
+        }
+        RingTrace ring = new RingTrace(64);
+        Game game = new Game(mineMap, new SplittableRandom(7));
+        game.setListener(ring);
+        game.solve(Solver.HEURISTIC);
+
+        List<int[]> events = read(file);
+        assertEquals(events.size(), ring.total());
+        assertTrue("the solve wraps the ring", ring.total() > ring.size());
+        int first = events.size() - ring.size();
+        for (int i = 0; i < ring.size(); i++)
+        {
+            int[] expected = events.get(first + i);
+            long event = ring.get(i);
+            assertEquals("event " + (first + i), expected[0], RingTrace.type(event));
+            assertEquals("event " + (first + i), expected[1], RingTrace.index(event));
+            assertEquals("event " + (first + i), Math.min(expected[2], 0xFFFFFF), RingTrace.argument(event));
+        }
+    }
+
+    /* type, index, argument of every record */
+    private static List<int[]> read(File file) throws IOException
+    {
+        List<int[]> events = new ArrayList<int[]>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            for (long k = 0; k < file.length() / 9; k++)
+            {
+                events.add(new int[] {in.readByte(), in.readInt(), in.readInt()});
+            }
+        }
+        return events;
+    }
+}